@@ -0,0 +1,106 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.benchmarks;
+
+import com.getty.quepid.model.solr.FieldList;
+import com.getty.quepid.uspto.model.Grant;
+import com.getty.quepid.uspto.services.GrantReader;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading a USPTO grants response with {@link GrantReader} compared with binding the whole
+ * response to a <code>List&lt;Grant&gt;</code> the way Retrofit's Gson converter does.
+ * <code>streamGrantsProjected</code> reads only the id and title, the way a search with <code>fl=id,title</code> does.
+ * Run with <code>-prof gc</code> to compare the allocation per response.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Thread)
+public class GrantReaderBenchmark {
+
+    private static final MediaType JSON = MediaType.get("application/json");
+    private static final Type GRANT_LIST = new TypeToken<List<Grant>>() { }.getType();
+
+    @Param({"10", "100"})
+    public int docCount;
+
+    @Param({"1000", "10000", "50000"})
+    public int descriptionSize;
+
+    @Param({"0", "10000"})
+    public int maxDescriptionLength;
+
+    private byte[] payload;
+    private GrantReader grantReader;
+    private FieldList idAndTitle;
+    private Gson gson;
+
+    @Setup
+    public void setUp() {
+
+        payload = Payloads.grantsJson(docCount, descriptionSize).getBytes(StandardCharsets.UTF_8);
+        grantReader = new GrantReader(maxDescriptionLength);
+        idAndTitle = FieldList.parse("id,title");
+        gson = new Gson();
+
+    }
+
+    @Benchmark
+    public List<Grant> streamGrants() throws IOException {
+
+        return grantReader.read(ResponseBody.create(JSON, payload)).getGrants();
+
+    }
+
+    @Benchmark
+    public List<Grant> streamGrantsProjected() throws IOException {
+
+        return grantReader.read(ResponseBody.create(JSON, payload), idAndTitle).getGrants();
+
+    }
+
+    @Benchmark
+    public List<Grant> bindGrants() throws IOException {
+
+        try (ResponseBody body = ResponseBody.create(JSON, payload); Reader reader = body.charStream()) {
+            return gson.fromJson(reader, GRANT_LIST);
+        }
+
+    }
+
+}
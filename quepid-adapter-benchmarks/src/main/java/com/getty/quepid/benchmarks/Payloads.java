@@ -0,0 +1,167 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.benchmarks;
+
+import com.getty.quepid.model.solr.Doc;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds the payloads used by the benchmarks. The payloads are generated from a fixed seed
+ * so every run of a benchmark works on exactly the same data and results can be compared across runs.
+ */
+public final class Payloads {
+
+    private static final long SEED = 20210801L;
+
+    private static final String[] WORDS = {
+            "apparatus", "method", "system", "device", "signal", "layer", "substrate", "circuit",
+            "controller", "configured", "first", "second", "plurality", "wherein", "comprising",
+            "semiconductor", "housing", "module", "assembly", "surface", "portion", "memory",
+            "processor", "data", "member", "coupled", "receive", "transmit", "valve", "fluid"
+    };
+
+    private Payloads() {
+    }
+
+    /**
+     * Builds a USPTO grants response, a JSON array of grants with the fields the real API returns.
+     * @param docCount The number of grants.
+     * @param descriptionSize The number of characters in each description.
+     * @return The response JSON.
+     */
+    public static String grantsJson(final int docCount, final int descriptionSize) {
+
+        final Random random = new Random(SEED);
+        final StringWriter json = new StringWriter();
+
+        try (JsonWriter writer = new JsonWriter(json)) {
+
+            writer.beginArray();
+
+            for (int i = 0; i < docCount; i++) {
+
+                writer.beginObject();
+                writer.name("inventionSubjectMatterCategory").value("utility");
+                writer.name("patentApplicationNumber").value("US" + (14000000 + i));
+                writer.name("filingDate").value("03-15-2016");
+                writer.name("mainCPCSymbolText").value("H04L29/06");
+                writer.name("inventorNameArrayText").beginArray().value("Jane Doe").value("John Roe").endArray();
+                writer.name("abstractText").value(text(random, 600));
+                writer.name("assigneeEntityName").value("Example Corporation");
+                writer.name("inventionTitle").value(text(random, 60));
+                writer.name("claimText").beginArray().value(text(random, descriptionSize / 2)).endArray();
+                writer.name("descriptionText").value(text(random, descriptionSize));
+                writer.name("publicationDocumentIdentifier").value("US" + patentNumber(i) + "B2");
+                writer.name("patentNumber").value(patentNumber(i));
+                writer.name("grantDate").value("08-01-2021");
+                writer.endObject();
+
+            }
+
+            writer.endArray();
+
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        return json.toString();
+
+    }
+
+    /**
+     * Builds the docs for a Solr response.
+     * @param docCount The number of docs.
+     * @param descriptionSize The number of characters in each description.
+     * @return The list of {@link Doc docs}.
+     */
+    public static List<Doc> docs(final int docCount, final int descriptionSize) {
+
+        final Random random = new Random(SEED);
+        final List<Doc> docs = new ArrayList<>(docCount);
+
+        for (int i = 0; i < docCount; i++) {
+
+            final Doc doc = new Doc(patentNumber(i));
+            doc.setTitle(text(random, 60));
+            doc.setDescription(text(random, descriptionSize));
+
+            docs.add(doc);
+
+        }
+
+        return docs;
+
+    }
+
+    /**
+     * Builds a Quepid snapshot query, e.g. <code>id:(10000000 OR 10000001)</code>.
+     * @param idCount The number of document IDs in the query.
+     * @return The query.
+     */
+    public static String idQuery(final int idCount) {
+
+        final StringBuilder query = new StringBuilder("id:(");
+
+        for (int i = 0; i < idCount; i++) {
+
+            if(i > 0) {
+                query.append(" OR ");
+            }
+
+            query.append(patentNumber(i));
+
+        }
+
+        return query.append(')').toString();
+
+    }
+
+    private static String patentNumber(final int i) {
+
+        return String.valueOf(10000000 + i);
+
+    }
+
+    private static String text(final Random random, final int length) {
+
+        final StringBuilder text = new StringBuilder(length + 16);
+
+        while (text.length() < length) {
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+
+        text.setLength(length);
+
+        return text.toString();
+
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.benchmarks;
+
+import com.getty.quepid.model.solr.SolrRequest;
+import com.getty.quepid.model.solr.SolrRequestParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing the parameters Quepid sends to <code>/search</code>. Repeated snapshot queries come from the parse cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Thread)
+public class SolrRequestParserBenchmark {
+
+    @Param({"search", "multi-id"})
+    public String queryType;
+
+    private SolrRequestParser parser;
+    private Map<String, String[]> parameters;
+
+    @Setup
+    public void setUp() {
+
+        parser = new SolrRequestParser(10000, 1000);
+
+        parameters = new HashMap<>();
+        parameters.put("q", new String[] { queryType.equals("search") ? "fluid valve assembly" : Payloads.idQuery(50) });
+        parameters.put("fl", new String[] { "id title description" });
+        parameters.put("start", new String[] { "0" });
+        parameters.put("rows", new String[] { "10" });
+        parameters.put("wt", new String[] { "json" });
+        parameters.put("debug", new String[] { "true" });
+        parameters.put("json.wrf", new String[] { "angular.callbacks._1" });
+
+    }
+
+    @Benchmark
+    public SolrRequest parse() {
+
+        return parser.parse(parameters);
+
+    }
+
+}
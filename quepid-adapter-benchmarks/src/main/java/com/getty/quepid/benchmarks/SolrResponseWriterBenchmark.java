@@ -0,0 +1,107 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.benchmarks;
+
+import com.getty.quepid.model.solr.Params;
+import com.getty.quepid.model.solr.Response;
+import com.getty.quepid.model.solr.ResponseHeader;
+import com.getty.quepid.model.solr.SolrResponse;
+import com.getty.quepid.model.solr.SolrResponseWriter;
+import com.google.gson.GsonBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serializing a {@link SolrResponse} the way the controller does, with the same Gson configuration as
+ * the <code>QuepidAdapterApplication</code> Gson bean, with and without the json.wrf wrapper, pretty printing and gzip.
+ * The size of each response is printed when the trial starts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Thread)
+public class SolrResponseWriterBenchmark {
+
+    @Param({"10", "100"})
+    public int docCount;
+
+    @Param({"1000", "10000"})
+    public int descriptionSize;
+
+    @Param({"", "angular.callbacks._1"})
+    public String jsonWrf;
+
+    @Param({"false", "true"})
+    public boolean indent;
+
+    @Param({"false", "true"})
+    public boolean gzip;
+
+    private SolrResponseWriter writer;
+    private SolrResponse solrResponse;
+    private CountingOutputStream outputStream;
+
+    @Setup
+    public void setUp() throws IOException {
+
+        writer = new SolrResponseWriter(new GsonBuilder().create());
+
+        final ResponseHeader responseHeader = new ResponseHeader(0, 42, new Params("dog"));
+        solrResponse = new SolrResponse(responseHeader, new Response(Payloads.docs(docCount, descriptionSize)));
+
+        outputStream = new CountingOutputStream();
+        write();
+
+        System.out.printf("Response size: %d bytes%n", outputStream.getCount());
+
+    }
+
+    @Benchmark
+    public long write() throws IOException {
+
+        outputStream.reset();
+
+        if(gzip) {
+
+            try (OutputStream gzipStream = new GZIPOutputStream(outputStream, 8192)) {
+                writer.write(solrResponse, jsonWrf, indent, gzipStream);
+            }
+
+        } else {
+
+            writer.write(solrResponse, jsonWrf, indent, outputStream);
+
+        }
+
+        return outputStream.getCount();
+
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.loadtest;
+
+import javax.management.MBeanServerConnection;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Reads allocation and GC counters from the adapter's JVM over JMX.
+ * Start the adapter with <code>-Dcom.sun.management.jmxremote.port=9010 -Dcom.sun.management.jmxremote.authenticate=false
+ * -Dcom.sun.management.jmxremote.ssl=false</code>.
+ * <p>
+ * Allocation is the sum over live threads, which undercounts threads that die during the run;
+ * Tomcat's worker threads are long-lived so it's close enough for comparing runs.
+ */
+public class AllocationProbe implements AutoCloseable {
+
+    private final JMXConnector connector;
+    private final com.sun.management.ThreadMXBean threads;
+    private final List<GarbageCollectorMXBean> collectors;
+
+    public AllocationProbe(final String hostAndPort) throws IOException {
+
+        final JMXServiceURL url = new JMXServiceURL("service:jmx:rmi:///jndi/rmi://" + hostAndPort + "/jmxrmi");
+
+        this.connector = JMXConnectorFactory.connect(url);
+
+        final MBeanServerConnection connection = connector.getMBeanServerConnection();
+
+        this.threads = ManagementFactory.newPlatformMXBeanProxy(connection,
+                ManagementFactory.THREAD_MXBEAN_NAME, com.sun.management.ThreadMXBean.class);
+        this.collectors = ManagementFactory.getPlatformMXBeans(connection, GarbageCollectorMXBean.class);
+
+    }
+
+    public long allocatedBytes() {
+
+        long total = 0;
+
+        for (final long allocated : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+
+            if(allocated > 0) {
+                total += allocated;
+            }
+
+        }
+
+        return total;
+
+    }
+
+    public long gcCount() {
+
+        return collectors.stream().mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+
+    }
+
+    public long gcMillis() {
+
+        return collectors.stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        connector.close();
+
+    }
+
+}
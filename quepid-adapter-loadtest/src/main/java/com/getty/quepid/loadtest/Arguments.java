@@ -0,0 +1,99 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.loadtest;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Command line options in the form <code>--name=value</code>.
+ */
+public class Arguments {
+
+    private final Map<String, String> values = new HashMap<>();
+
+    public Arguments(final String[] args, final int offset) {
+
+        for (int i = offset; i < args.length; i++) {
+
+            final String arg = args[i];
+
+            if(!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+
+            final int equals = arg.indexOf('=');
+
+            if(equals < 0) {
+                values.put(arg.substring(2), "true");
+            } else {
+                values.put(arg.substring(2, equals), arg.substring(equals + 1));
+            }
+
+        }
+
+    }
+
+    public String get(final String name, final String defaultValue) {
+
+        return values.getOrDefault(name, defaultValue);
+
+    }
+
+    public int getInt(final String name, final int defaultValue) {
+
+        return values.containsKey(name) ? Integer.parseInt(values.get(name)) : defaultValue;
+
+    }
+
+    public double getDouble(final String name, final double defaultValue) {
+
+        return values.containsKey(name) ? Double.parseDouble(values.get(name)) : defaultValue;
+
+    }
+
+    /**
+     * Gets a duration such as <code>500ms</code>, <code>30s</code> or <code>5m</code>. A plain number is milliseconds.
+     * @return The duration in milliseconds.
+     */
+    public long getMillis(final String name, final long defaultMillis) {
+
+        final String value = values.get(name);
+
+        if(value == null) {
+            return defaultMillis;
+        } else if(value.endsWith("ms")) {
+            return Long.parseLong(value.substring(0, value.length() - 2));
+        } else if(value.endsWith("s")) {
+            return TimeUnit.SECONDS.toMillis(Long.parseLong(value.substring(0, value.length() - 1)));
+        } else if(value.endsWith("m")) {
+            return TimeUnit.MINUTES.toMillis(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+
+        return Long.parseLong(value);
+
+    }
+
+}
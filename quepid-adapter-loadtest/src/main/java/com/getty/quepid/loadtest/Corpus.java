@@ -0,0 +1,247 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.loadtest;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The grants served by the stub server. Each grant is kept as its serialized JSON so serving a
+ * response is just concatenation. The corpus is either loaded from a file holding a JSON array of
+ * grants (e.g. a recorded USPTO response) or generated from a fixed seed.
+ */
+public class Corpus {
+
+    static final int FIRST_PATENT_NUMBER = 10000000;
+
+    static final String[] WORDS = {
+            "apparatus", "method", "system", "device", "signal", "layer", "substrate", "circuit",
+            "controller", "configured", "first", "second", "plurality", "wherein", "comprising",
+            "semiconductor", "housing", "module", "assembly", "surface", "portion", "memory",
+            "processor", "data", "member", "coupled", "receive", "transmit", "valve", "fluid"
+    };
+
+    private final List<String> grants;
+    private final Map<String, String> grantsByPatentNumber;
+
+    private Corpus(final List<String> grants, final Map<String, String> grantsByPatentNumber) {
+        this.grants = grants;
+        this.grantsByPatentNumber = grantsByPatentNumber;
+    }
+
+    /**
+     * Generates a corpus with patent numbers starting at {@value #FIRST_PATENT_NUMBER}.
+     * @param size The number of grants.
+     * @param descriptionSize The number of characters in each description.
+     * @return The {@link Corpus}.
+     */
+    public static Corpus generate(final int size, final int descriptionSize) {
+
+        final Random random = new Random(size);
+        final List<String> grants = new ArrayList<>(size);
+        final Map<String, String> grantsByPatentNumber = new HashMap<>();
+
+        for (int i = 0; i < size; i++) {
+
+            final String patentNumber = String.valueOf(FIRST_PATENT_NUMBER + i);
+
+            final JsonObject grant = new JsonObject();
+            grant.addProperty("patentApplicationNumber", "US" + (14000000 + i));
+            grant.addProperty("filingDate", "03-15-2016");
+            grant.addProperty("abstractText", text(random, 600));
+            grant.addProperty("assigneeEntityName", "Example Corporation");
+            grant.addProperty("inventionTitle", text(random, 60));
+            grant.addProperty("descriptionText", text(random, descriptionSize));
+            grant.addProperty("patentNumber", patentNumber);
+            grant.addProperty("grantDate", "08-01-2021");
+
+            final String json = grant.toString();
+            grants.add(json);
+            grantsByPatentNumber.put(patentNumber, json);
+
+        }
+
+        return new Corpus(grants, grantsByPatentNumber);
+
+    }
+
+    /**
+     * Loads a corpus from a file holding a JSON array of grants.
+     * @param path The file path.
+     * @return The {@link Corpus}.
+     */
+    public static Corpus load(final String path) throws IOException {
+
+        try (Reader reader = Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8)) {
+
+            final JsonArray array = JsonParser.parseReader(reader).getAsJsonArray();
+            final List<String> grants = new ArrayList<>(array.size());
+            final Map<String, String> grantsByPatentNumber = new HashMap<>();
+
+            for (final JsonElement element : array) {
+
+                final String json = element.toString();
+                grants.add(json);
+
+                final JsonElement patentNumber = element.getAsJsonObject().get("patentNumber");
+
+                if(patentNumber != null && !patentNumber.isJsonNull()) {
+                    grantsByPatentNumber.put(patentNumber.getAsString(), json);
+                }
+
+            }
+
+            return new Corpus(grants, grantsByPatentNumber);
+
+        }
+
+    }
+
+    public int size() {
+        return grants.size();
+    }
+
+    /**
+     * Writes the corpus as a JSON array of grants, the form {@link #load(String)} reads.
+     * @param writer Where to write it.
+     */
+    public void writeJson(final Writer writer) throws IOException {
+
+        writer.write('[');
+
+        for (int i = 0; i < grants.size(); i++) {
+
+            if(i > 0) {
+                writer.write(",\n");
+            }
+
+            writer.write(grants.get(i));
+
+        }
+
+        writer.write("]\n");
+
+    }
+
+    /**
+     * Writes the corpus in the form of a USPTO bulk grant full text file: one XML document per grant, one after the other.
+     * @param writer Where to write it.
+     */
+    public void writeXml(final Writer writer) throws IOException {
+
+        for (final String json : grants) {
+
+            final JsonObject grant = JsonParser.parseString(json).getAsJsonObject();
+
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            writer.write("<!DOCTYPE us-patent-grant SYSTEM \"us-patent-grant-v46-2021-08-30.dtd\" [ ]>\n");
+            writer.write("<us-patent-grant lang=\"EN\" country=\"US\">\n<us-bibliographic-data-grant>\n");
+            writer.write("<publication-reference>\n<document-id>\n<country>US</country>\n");
+            writer.write("<doc-number>" + escapeXml(getString(grant, "patentNumber")) + "</doc-number>\n");
+            writer.write("<kind>B2</kind>\n</document-id>\n</publication-reference>\n");
+            writer.write("<invention-title id=\"d2e43\">" + escapeXml(getString(grant, "inventionTitle")) + "</invention-title>\n");
+            writer.write("</us-bibliographic-data-grant>\n");
+            writer.write("<abstract id=\"abstract\">\n<p id=\"p-0001\" num=\"0000\">" + escapeXml(getString(grant, "abstractText")) + "</p>\n</abstract>\n");
+            writer.write("<description id=\"description\">\n<p id=\"p-0002\" num=\"0001\">" + escapeXml(getString(grant, "descriptionText")) + "</p>\n</description>\n");
+            writer.write("</us-patent-grant>\n");
+
+        }
+
+    }
+
+    private static String getString(final JsonObject grant, final String name) {
+
+        final JsonElement value = grant.get(name);
+
+        return value == null || value.isJsonNull() ? "" : value.getAsString();
+
+    }
+
+    private static String escapeXml(final String text) {
+
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+
+    }
+
+    /**
+     * Gets the grant with a patent number.
+     * @return The grant JSON or <code>null</code>.
+     */
+    public String get(final String patentNumber) {
+        return grantsByPatentNumber.get(patentNumber);
+    }
+
+    /**
+     * Gets a page of "search results". Each search text maps to a fixed place in the corpus
+     * so repeated searches return the same grants. Every search matches the whole corpus once.
+     * @return The grant JSON for each result.
+     */
+    public List<String> search(final String searchText, final int start, final int rows) {
+
+        final int count = Math.max(0, Math.min(rows, grants.size() - start));
+        final List<String> results = new ArrayList<>(count);
+
+        if(grants.isEmpty()) {
+            return results;
+        }
+
+        final int offset = (searchText.hashCode() & Integer.MAX_VALUE) % grants.size();
+
+        for (int i = 0; i < count; i++) {
+            results.add(grants.get((offset + start + i) % grants.size()));
+        }
+
+        return results;
+
+    }
+
+    static String text(final Random random, final int length) {
+
+        final StringBuilder text = new StringBuilder(length + 16);
+
+        while (text.length() < length) {
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+
+        text.setLength(length);
+
+        return text.toString();
+
+    }
+
+}
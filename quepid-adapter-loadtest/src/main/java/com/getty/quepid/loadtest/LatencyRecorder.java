@@ -0,0 +1,91 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Records the latencies of one type of request. Each load generator thread has its own recorder
+ * and they are merged at the end, so recording never contends.
+ */
+public class LatencyRecorder {
+
+    private long[] latencies = new long[1024];
+    private int count;
+    private int errors;
+
+    public void record(final long latencyNanos) {
+
+        if(count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+
+        latencies[count++] = latencyNanos;
+
+    }
+
+    public void recordError() {
+
+        errors++;
+
+    }
+
+    public void merge(final LatencyRecorder other) {
+
+        for (int i = 0; i < other.count; i++) {
+            record(other.latencies[i]);
+        }
+
+        errors += other.errors;
+
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getErrors() {
+        return errors;
+    }
+
+    /**
+     * Gets a latency percentile. Sorts the recorded latencies, so only call this once recording is done.
+     * @param percentile The percentile, e.g. 99.
+     * @return The latency in milliseconds.
+     */
+    public double percentileMillis(final double percentile) {
+
+        if(count == 0) {
+            return 0;
+        }
+
+        Arrays.sort(latencies, 0, count);
+
+        final int index = (int) Math.ceil(percentile / 100 * count) - 1;
+
+        return latencies[Math.max(0, Math.min(count - 1, index))] / 1e6;
+
+    }
+
+}
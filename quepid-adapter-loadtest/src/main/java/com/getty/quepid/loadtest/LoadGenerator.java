@@ -0,0 +1,289 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.loadtest;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Okio;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replays Quepid-like traffic against the adapter from a fixed number of closed-loop clients and
+ * reports throughput and latency percentiles for each kind of request Quepid makes.
+ */
+public class LoadGenerator {
+
+    enum RequestType {
+        PING, SEARCH, ID, IDS
+    }
+
+    private final HttpUrl target;
+    private final int concurrency;
+    private final long warmupMillis;
+    private final long durationMillis;
+    private final int[] weights;
+    private final int idsPerSnapshot;
+    private final int corpusSize;
+    private final String jmx;
+    private final OkHttpClient client;
+
+    private final AtomicLong responseBytes = new AtomicLong();
+
+    public LoadGenerator(final Arguments arguments) {
+
+        this.target = HttpUrl.get(arguments.get("target", "http://localhost:8080/search"));
+        this.concurrency = arguments.getInt("concurrency", 32);
+        this.warmupMillis = arguments.getMillis("warmup", 10000);
+        this.durationMillis = arguments.getMillis("duration", 60000);
+        this.weights = parseMix(arguments.get("mix", "ping:1,search:6,id:2,ids:1"));
+        this.idsPerSnapshot = arguments.getInt("ids", 20);
+        this.corpusSize = arguments.getInt("corpus-size", 1000);
+        this.jmx = arguments.get("jmx", null);
+
+        final Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(concurrency);
+        dispatcher.setMaxRequestsPerHost(concurrency);
+
+        this.client = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(concurrency, 5, TimeUnit.MINUTES))
+                .readTimeout(arguments.getMillis("timeout", 60000), TimeUnit.MILLISECONDS)
+                .build();
+
+    }
+
+    public void run() throws Exception {
+
+        System.out.printf("Warming up for %ds with %d clients against %s%n", warmupMillis / 1000, concurrency, target);
+        runClients(warmupMillis);
+
+        final AllocationProbe probe = jmx == null ? null : new AllocationProbe(jmx);
+        final long allocatedBefore = probe == null ? 0 : probe.allocatedBytes();
+        final long gcCountBefore = probe == null ? 0 : probe.gcCount();
+        final long gcMillisBefore = probe == null ? 0 : probe.gcMillis();
+
+        System.out.printf("Running for %ds%n", durationMillis / 1000);
+        responseBytes.set(0);
+
+        final long startTime = System.nanoTime();
+        final Map<RequestType, LatencyRecorder> results = runClients(durationMillis);
+        final double elapsedSeconds = (System.nanoTime() - startTime) / 1e9;
+
+        int total = 0;
+
+        System.out.printf("%n%-8s %10s %8s %10s %10s %10s %10s %10s%n", "type", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms");
+
+        for (final Map.Entry<RequestType, LatencyRecorder> result : results.entrySet()) {
+
+            final LatencyRecorder recorder = result.getValue();
+            total += recorder.getCount();
+
+            System.out.printf("%-8s %10d %8d %10.1f %10.1f %10.1f %10.1f %10.1f%n", result.getKey(), recorder.getCount(),
+                    recorder.getErrors(), recorder.getCount() / elapsedSeconds, recorder.percentileMillis(50),
+                    recorder.percentileMillis(90), recorder.percentileMillis(99), recorder.percentileMillis(100));
+
+        }
+
+        System.out.printf("%nThroughput: %.1f req/s, %.1f MB/s of responses%n", total / elapsedSeconds,
+                responseBytes.get() / elapsedSeconds / (1024 * 1024));
+
+        if(probe != null) {
+
+            final double allocatedMegabytes = (probe.allocatedBytes() - allocatedBefore) / (1024.0 * 1024.0);
+
+            System.out.printf("Adapter allocation: %.1f MB/s, %.1f KB/request, %d GCs taking %dms%n",
+                    allocatedMegabytes / elapsedSeconds, allocatedMegabytes * 1024 / Math.max(1, total),
+                    probe.gcCount() - gcCountBefore, probe.gcMillis() - gcMillisBefore);
+
+            probe.close();
+
+        }
+
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+
+    }
+
+    private Map<RequestType, LatencyRecorder> runClients(final long millis) throws InterruptedException {
+
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        final List<Thread> threads = new ArrayList<>(concurrency);
+        final List<Map<RequestType, LatencyRecorder>> recorders = new ArrayList<>(concurrency);
+
+        for (int i = 0; i < concurrency; i++) {
+
+            final Map<RequestType, LatencyRecorder> recorder = newRecorders();
+            final Random random = new Random(i);
+
+            recorders.add(recorder);
+            threads.add(new Thread(() -> runClient(deadline, random, recorder), "loadtest-client-" + i));
+
+        }
+
+        threads.forEach(Thread::start);
+
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        final Map<RequestType, LatencyRecorder> merged = newRecorders();
+
+        for (final Map<RequestType, LatencyRecorder> recorder : recorders) {
+            recorder.forEach((type, latencies) -> merged.get(type).merge(latencies));
+        }
+
+        return merged;
+
+    }
+
+    private void runClient(final long deadline, final Random random, final Map<RequestType, LatencyRecorder> recorders) {
+
+        int callback = 0;
+
+        while (System.nanoTime() < deadline) {
+
+            final RequestType type = nextType(random);
+            final HttpUrl url = target.newBuilder()
+                    .addQueryParameter("q", nextQuery(type, random))
+                    .addQueryParameter("fl", "id title description")
+                    .addQueryParameter("start", "0")
+                    .addQueryParameter("rows", "10")
+                    .addQueryParameter("wt", "json")
+                    .addQueryParameter("json.wrf", "angular.callbacks._" + callback++)
+                    .build();
+
+            final long startTime = System.nanoTime();
+
+            try (Response response = client.newCall(new Request.Builder().url(url).build()).execute()) {
+
+                final ResponseBody body = response.body();
+                final long bytes = body == null ? 0 : body.source().readAll(Okio.blackhole());
+
+                if(response.isSuccessful()) {
+                    recorders.get(type).record(System.nanoTime() - startTime);
+                    responseBytes.addAndGet(bytes);
+                } else {
+                    recorders.get(type).recordError();
+                }
+
+            } catch (IOException ex) {
+
+                recorders.get(type).recordError();
+
+            }
+
+        }
+
+    }
+
+    private RequestType nextType(final Random random) {
+
+        int pick = random.nextInt(weights[weights.length - 1]);
+
+        for (int i = 0; i < weights.length; i++) {
+
+            if(pick < weights[i]) {
+                return RequestType.values()[i];
+            }
+
+        }
+
+        return RequestType.SEARCH;
+
+    }
+
+    private String nextQuery(final RequestType type, final Random random) {
+
+        switch (type) {
+            case PING:
+                return "*:*";
+            case ID:
+                return "id:" + nextPatentNumber(random);
+            case IDS:
+                final StringBuilder query = new StringBuilder("id:(");
+                for (int i = 0; i < idsPerSnapshot; i++) {
+                    query.append(i > 0 ? " OR " : "").append(nextPatentNumber(random));
+                }
+                return query.append(')').toString();
+            default:
+                return Corpus.WORDS[random.nextInt(Corpus.WORDS.length)] + " " + Corpus.WORDS[random.nextInt(Corpus.WORDS.length)];
+        }
+
+    }
+
+    private int nextPatentNumber(final Random random) {
+
+        return Corpus.FIRST_PATENT_NUMBER + random.nextInt(corpusSize);
+
+    }
+
+    private static Map<RequestType, LatencyRecorder> newRecorders() {
+
+        final Map<RequestType, LatencyRecorder> recorders = new EnumMap<>(RequestType.class);
+
+        for (final RequestType type : RequestType.values()) {
+            recorders.put(type, new LatencyRecorder());
+        }
+
+        return recorders;
+
+    }
+
+    /**
+     * Parses a request mix such as <code>ping:1,search:6,id:2,ids:1</code> into cumulative weights.
+     */
+    private static int[] parseMix(final String mix) {
+
+        final int[] weights = new int[RequestType.values().length];
+
+        for (final String part : mix.split(",")) {
+
+            final String[] typeAndWeight = part.split(":");
+            weights[RequestType.valueOf(typeAndWeight[0].trim().toUpperCase(Locale.ROOT)).ordinal()] = Integer.parseInt(typeAndWeight[1].trim());
+
+        }
+
+        for (int i = 1; i < weights.length; i++) {
+            weights[i] += weights[i - 1];
+        }
+
+        return weights;
+
+    }
+
+}
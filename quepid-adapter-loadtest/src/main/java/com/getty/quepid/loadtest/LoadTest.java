@@ -0,0 +1,92 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.loadtest;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Runs the USPTO stub server or the load generator, or writes the stub server's corpus.
+ * <pre>
+ * java -jar loadtest.jar stub --port=9090 --latency=200ms --jitter=100ms --error-rate=0.01
+ * java -jar loadtest.jar run --target=http://localhost:8080/search --concurrency=64 --duration=60s
+ * java -jar loadtest.jar corpus --corpus-size=20000 --out=grants.xml
+ * </pre>
+ * The <code>corpus</code> command writes the stub server's grants as a bulk file, JSON or XML by the file extension,
+ * so the local Lucene backend can be built from the same grants.
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+
+        if(args.length == 0) {
+            System.err.println("Usage: loadtest.jar (stub|run|corpus) [--name=value ...]");
+            System.exit(1);
+        }
+
+        final Arguments arguments = new Arguments(args, 1);
+
+        switch (args[0]) {
+            case "stub":
+                StubServer.fromArguments(arguments).start(arguments.getInt("port", 9090));
+                break;
+            case "run":
+                new LoadGenerator(arguments).run();
+                break;
+            case "corpus":
+                writeCorpus(arguments);
+                break;
+            default:
+                System.err.println("Unknown command " + args[0]);
+                System.exit(1);
+        }
+
+    }
+
+    /**
+     * Writes a generated corpus, the same one the stub server serves for the same size options.
+     */
+    private static void writeCorpus(final Arguments arguments) throws IOException {
+
+        final Corpus corpus = Corpus.generate(arguments.getInt("corpus-size", 1000), arguments.getInt("description-size", 10000));
+        final String out = arguments.get("out", "grants.json");
+
+        try (Writer writer = Files.newBufferedWriter(Paths.get(out), StandardCharsets.UTF_8)) {
+
+            if(out.endsWith(".xml")) {
+                corpus.writeXml(writer);
+            } else {
+                corpus.writeJson(writer);
+            }
+
+        }
+
+        System.out.printf("Wrote %d grants to %s%n", corpus.size(), out);
+
+    }
+
+}
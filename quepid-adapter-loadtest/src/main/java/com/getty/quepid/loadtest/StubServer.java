@@ -0,0 +1,219 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A local stand-in for the <code>v1/application/grants</code> endpoint of the USPTO API, serving a {@link Corpus}.
+ * Latency, errors and slow responses are injected so the adapter can be tested against an unhealthy upstream.
+ * With <code>--wrapped=true</code> the grants are wrapped in an object with the total number of matches,
+ * <code>{"recordTotalQuantity":n,"results":[...]}</code>, instead of being a bare array.
+ * <p>
+ * Point the adapter at it with <code>--uspto.base-url=http://localhost:9090/</code>.
+ */
+public class StubServer {
+
+    private final Corpus corpus;
+    private final long latencyMillis;
+    private final long jitterMillis;
+    private final double errorRate;
+    private final double slowRate;
+    private final long slowMillis;
+    private final boolean wrapped;
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public StubServer(final Corpus corpus, final long latencyMillis, final long jitterMillis,
+                      final double errorRate, final double slowRate, final long slowMillis, final boolean wrapped) {
+
+        this.corpus = corpus;
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+        this.errorRate = errorRate;
+        this.slowRate = slowRate;
+        this.slowMillis = slowMillis;
+        this.wrapped = wrapped;
+
+    }
+
+    public static StubServer fromArguments(final Arguments arguments) throws IOException {
+
+        final String corpusPath = arguments.get("corpus", null);
+
+        final Corpus corpus = corpusPath != null
+                ? Corpus.load(corpusPath)
+                : Corpus.generate(arguments.getInt("corpus-size", 1000), arguments.getInt("description-size", 10000));
+
+        return new StubServer(corpus,
+                arguments.getMillis("latency", 200),
+                arguments.getMillis("jitter", 100),
+                arguments.getDouble("error-rate", 0),
+                arguments.getDouble("slow-rate", 0),
+                arguments.getMillis("slow", 5000),
+                Boolean.parseBoolean(arguments.get("wrapped", "false")));
+
+    }
+
+    public void start(final int port) throws IOException {
+
+        // Every request sleeps to simulate upstream latency, so each one needs its own thread.
+        executor = Executors.newCachedThreadPool();
+
+        server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.createContext("/v1/application/grants", this::handle);
+        server.setExecutor(executor);
+        server.start();
+
+        System.out.printf("USPTO stub serving %d grants on http://localhost:%d/ (latency %dms + up to %dms, error rate %.3f, slow rate %.3f)%n",
+                corpus.size(), port, latencyMillis, jitterMillis, errorRate, slowRate);
+
+    }
+
+    public void stop() {
+
+        server.stop(0);
+        executor.shutdownNow();
+
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+
+        try {
+
+            final ThreadLocalRandom random = ThreadLocalRandom.current();
+            final long delay = random.nextDouble() < slowRate
+                    ? slowMillis
+                    : latencyMillis + (jitterMillis > 0 ? random.nextLong(jitterMillis) : 0);
+
+            Thread.sleep(delay);
+
+            if(random.nextDouble() < errorRate) {
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+
+            final Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+            final List<String> grants;
+            final int total;
+
+            if(params.containsKey("patentNumber")) {
+
+                final String grant = corpus.get(params.get("patentNumber"));
+                grants = grant == null ? Collections.emptyList() : Collections.singletonList(grant);
+                total = grants.size();
+
+            } else {
+
+                grants = corpus.search(params.getOrDefault("searchText", ""),
+                        Integer.parseInt(params.getOrDefault("start", "0")),
+                        Integer.parseInt(params.getOrDefault("rows", "100")));
+                total = corpus.size();
+
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, 0);
+
+            try (OutputStream body = exchange.getResponseBody();
+                 Writer writer = new OutputStreamWriter(body, StandardCharsets.UTF_8)) {
+
+                if(wrapped) {
+                    writer.write("{\"recordTotalQuantity\":" + total + ",\"results\":");
+                }
+
+                writer.write('[');
+
+                for (int i = 0; i < grants.size(); i++) {
+
+                    if(i > 0) {
+                        writer.write(',');
+                    }
+
+                    writer.write(grants.get(i));
+
+                }
+
+                writer.write(']');
+
+                if(wrapped) {
+                    writer.write('}');
+                }
+
+            }
+
+        } catch (InterruptedException ex) {
+
+            Thread.currentThread().interrupt();
+
+        } finally {
+
+            exchange.close();
+
+        }
+
+    }
+
+    private static Map<String, String> parseQuery(final String query) throws UnsupportedEncodingException {
+
+        final Map<String, String> params = new HashMap<>();
+
+        if(query == null) {
+            return params;
+        }
+
+        for (final String pair : query.split("&")) {
+
+            final int equals = pair.indexOf('=');
+
+            if(equals > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, equals), "UTF-8"),
+                        URLDecoder.decode(pair.substring(equals + 1), "UTF-8"));
+            }
+
+        }
+
+        return params;
+
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.lucene;
+
+import com.getty.quepid.model.search.Snippets;
+import com.getty.quepid.uspto.model.Grant;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+
+/**
+ * How grants are laid out in the local index.
+ * <p>
+ * The patent number is the document ID. The title is searched and stored. The abstract and the full description are
+ * searched together as the text, and only a shortened description is stored, so the stored fields stay small enough
+ * to read from disk quickly.
+ */
+public final class GrantDocuments {
+
+    public static final String ID = "id";
+    public static final String TITLE = "title";
+    public static final String DESCRIPTION = "description";
+    public static final String TEXT = "text";
+
+    private GrantDocuments() {
+    }
+
+    /**
+     * Creates the analyzer for the searched fields. Indexing and searching must use the same one.
+     * @return The {@link Analyzer}.
+     */
+    public static Analyzer newAnalyzer() {
+
+        return new EnglishAnalyzer();
+
+    }
+
+    /**
+     * Creates the index document for a grant.
+     * @param grant The {@link Grant}.
+     * @param descriptionMaxLength The number of description characters to store, or 0 to store them all.
+     * @return The {@link Document}.
+     */
+    public static Document toDocument(final Grant grant, final int descriptionMaxLength) {
+
+        final Document document = new Document();
+
+        document.add(new StringField(ID, grant.getPatentNumber(), Field.Store.YES));
+
+        if(grant.getInventionTitle() != null) {
+            document.add(new TextField(TITLE, grant.getInventionTitle(), Field.Store.YES));
+        }
+
+        if(grant.getAbstractText() != null) {
+            document.add(new TextField(TEXT, grant.getAbstractText(), Field.Store.NO));
+        }
+
+        if(grant.getDescriptionText() != null) {
+            document.add(new TextField(TEXT, grant.getDescriptionText(), Field.Store.NO));
+            document.add(new StoredField(DESCRIPTION, Snippets.truncate(grant.getDescriptionText(), descriptionMaxLength)));
+        }
+
+        return document;
+
+    }
+
+}
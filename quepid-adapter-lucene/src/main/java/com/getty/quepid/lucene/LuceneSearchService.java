@@ -0,0 +1,313 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.lucene;
+
+import com.getty.quepid.model.search.AbstractSearchService;
+import com.getty.quepid.model.search.Snippets;
+import com.getty.quepid.model.solr.Doc;
+import com.getty.quepid.model.solr.FieldList;
+import com.getty.quepid.model.solr.Params;
+import com.getty.quepid.model.solr.Response;
+import com.getty.quepid.model.solr.ResponseHeader;
+import com.getty.quepid.model.solr.SolrResponse;
+import com.getty.quepid.uspto.model.UsptoSearchRequest;
+import com.getty.quepid.uspto.model.UsptoSearchResponse;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Searches a local Lucene index of USPTO grants, built by {@link com.getty.quepid.lucene.ingest.Ingest},
+ * instead of the USPTO API. Used in place of the USPTO backend when <code>quepid.backend=lucene</code>, in which case
+ * none of the USPTO client, cache or resilience beans are created.
+ * <p>
+ * Searches and lookups run on the calling thread, since they only read the local disk. The index is reopened every
+ * <code>refresh-interval</code> so grants ingested while the adapter is running show up, or never if it is 0.
+ */
+@Component
+@ConditionalOnProperty(name = "quepid.backend", havingValue = "lucene")
+public class LuceneSearchService extends AbstractSearchService<UsptoSearchRequest, UsptoSearchResponse> {
+
+    private final Logger LOGGER = LoggerFactory.getLogger(LuceneSearchService.class);
+
+    private static final String NOT_FOUND = "Patent not found";
+
+    private static final String[] SEARCH_FIELDS = { GrantDocuments.TITLE, GrantDocuments.TEXT };
+
+    private static final Map<String, Float> SEARCH_BOOSTS;
+
+    static {
+
+        // A match in the title says more about a patent than one somewhere in its text.
+        final Map<String, Float> boosts = new HashMap<>();
+        boosts.put(GrantDocuments.TITLE, 2.0f);
+        boosts.put(GrantDocuments.TEXT, 1.0f);
+
+        SEARCH_BOOSTS = Collections.unmodifiableMap(boosts);
+
+    }
+
+    private final Directory directory;
+    private final SearcherManager searcherManager;
+    private final Analyzer analyzer = GrantDocuments.newAnalyzer();
+    private final ScheduledExecutorService refresher;
+    private final int searchDescriptionMaxLength;
+
+    public LuceneSearchService(@Value("${quepid.lucene.index-path:lucene-index}") String indexPath,
+                               @Value("${quepid.lucene.refresh-interval:60s}") Duration refreshInterval,
+                               @Value("${uspto.search.description-max-length:1000}") int searchDescriptionMaxLength) throws IOException {
+
+        final Path path = Paths.get(indexPath);
+
+        if(!Files.isDirectory(path)) {
+            throw new IOException("No Lucene index at " + path.toAbsolutePath() + ", build one with lucene-ingest.jar");
+        }
+
+        this.directory = FSDirectory.open(path);
+        this.searcherManager = new SearcherManager(directory, null);
+        this.searchDescriptionMaxLength = searchDescriptionMaxLength;
+
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "lucene-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // An index that is never ingested into while the adapter runs doesn't need reopening.
+        if(refreshInterval.toMillis() > 0) {
+            this.refresher.scheduleWithFixedDelay(this::refresh, refreshInterval.toMillis(), refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        LOGGER.info("Searching the Lucene index at {}", path.toAbsolutePath());
+
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+
+        refresher.shutdownNow();
+        searcherManager.close();
+        directory.close();
+
+    }
+
+    @Override
+    public UsptoSearchResponse search(UsptoSearchRequest searchRequest) throws IOException {
+
+        final long startTime = System.nanoTime();
+        final FieldList fields = searchRequest.getFields();
+        final int start = searchRequest.getStart();
+        final int rows = searchRequest.getRows();
+
+        final Query query = parse(searchRequest.getSearchText());
+        final IndexSearcher searcher = searcherManager.acquire();
+
+        final List<Doc> docs;
+        final int numFound;
+
+        try {
+
+            // The collector keeps every hit up to the end of the page, which can't be more than there are documents.
+            final int numHits = Math.max(1, (int) Math.min((long) start + rows, searcher.getIndexReader().maxDoc()));
+
+            // Counting every hit keeps numFound exact, as Quepid shows it.
+            final TopScoreDocCollector collector = TopScoreDocCollector.create(numHits, Integer.MAX_VALUE);
+            searcher.search(query, collector);
+
+            final TopDocs topDocs = collector.topDocs(start, rows);
+            final Set<String> fieldsToLoad = getFieldsToLoad(fields);
+
+            docs = new ArrayList<>(topDocs.scoreDocs.length);
+
+            for (final ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                docs.add(toDoc(searcher.doc(scoreDoc.doc, fieldsToLoad), searchDescriptionMaxLength));
+            }
+
+            numFound = collector.getTotalHits();
+
+        } finally {
+
+            searcherManager.release(searcher);
+
+        }
+
+        final long searchTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
+        final ResponseHeader responseHeader = new ResponseHeader(0, searchTime, new Params(searchRequest.getSearchText()));
+        final SolrResponse solrResponse = new SolrResponse(responseHeader, new Response(docs, numFound, start));
+
+        final UsptoSearchResponse searchResponse = new UsptoSearchResponse();
+        searchResponse.setSearchTime(searchTime);
+        searchResponse.setSolrResponse(solrResponse);
+
+        return searchResponse;
+
+    }
+
+    @Override
+    public Doc getDocument(String patentNumber) throws IOException {
+
+        final IndexSearcher searcher = searcherManager.acquire();
+
+        try {
+
+            final TopDocs topDocs = searcher.search(new TermQuery(new Term(GrantDocuments.ID, patentNumber)), 1);
+
+            if(topDocs.scoreDocs.length > 0) {
+                return toDoc(searcher.doc(topDocs.scoreDocs[0].doc), 0);
+            }
+
+        } finally {
+
+            searcherManager.release(searcher);
+
+        }
+
+        // No patent exists for this patent number.
+        LOGGER.warn("No patent found for patent number {}", patentNumber);
+
+        final Doc doc = new Doc(patentNumber);
+        doc.setTitle(NOT_FOUND);
+        doc.setDescription(NOT_FOUND);
+
+        return doc;
+
+    }
+
+    /**
+     * Parses the search text as a Lucene query over the title and text. Text that isn't a valid query, such as
+     * an unbalanced quote, is searched for as plain words.
+     * @param searchText The search text.
+     * @return The {@link Query}.
+     */
+    private Query parse(final String searchText) {
+
+        if(searchText == null || searchText.trim().isEmpty()) {
+            return new MatchNoDocsQuery();
+        }
+
+        // Query parsers aren't thread safe, and are cheap to create.
+        final QueryParser parser = new MultiFieldQueryParser(SEARCH_FIELDS, analyzer, SEARCH_BOOSTS);
+
+        try {
+            return parser.parse(searchText);
+        } catch (ParseException ex) {
+
+            try {
+                return parser.parse(QueryParser.escape(searchText));
+            } catch (ParseException escapedEx) {
+                return new MatchNoDocsQuery();
+            }
+
+        }
+
+    }
+
+    /**
+     * Gets the stored fields to read for a {@link FieldList}. The ID is always read.
+     * @param fields The {@link FieldList}.
+     * @return The names of the stored fields.
+     */
+    private static Set<String> getFieldsToLoad(final FieldList fields) {
+
+        final Set<String> fieldsToLoad = new HashSet<>(4);
+        fieldsToLoad.add(GrantDocuments.ID);
+
+        if(fields.includesTitle()) {
+            fieldsToLoad.add(GrantDocuments.TITLE);
+        }
+
+        if(fields.includesDescription()) {
+            fieldsToLoad.add(GrantDocuments.DESCRIPTION);
+        }
+
+        return fieldsToLoad;
+
+    }
+
+    /**
+     * Creates a {@link Doc} from the stored fields of an index document.
+     * @param document The {@link Document}.
+     * @param descriptionMaxLength The number of description characters to keep, or 0 to keep what is stored.
+     * @return The {@link Doc}.
+     */
+    private static Doc toDoc(final Document document, final int descriptionMaxLength) {
+
+        final Doc doc = new Doc(document.get(GrantDocuments.ID));
+        doc.setTitle(document.get(GrantDocuments.TITLE));
+        doc.setDescription(Snippets.truncate(document.get(GrantDocuments.DESCRIPTION), descriptionMaxLength));
+
+        return doc;
+
+    }
+
+    /**
+     * Reopens the index if it has changed, so newly ingested grants can be found.
+     */
+    private void refresh() {
+
+        try {
+            searcherManager.maybeRefresh();
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.warn("Couldn't refresh the Lucene index", ex);
+        }
+
+    }
+
+}
@@ -0,0 +1,374 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.lucene.ingest;
+
+import com.getty.quepid.uspto.model.Grant;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.function.Consumer;
+
+/**
+ * Streams the grants out of a USPTO bulk grant full text file, such as <code>ipg210105.xml</code>, with StAX.
+ * <p>
+ * A bulk file is many XML documents, one <code>us-patent-grant</code> per patent, each with its own XML declaration and
+ * DOCTYPE, one after the other. The declarations are dropped as the file is read and the documents are read as the
+ * children of one root element, so only the grant being read is held in memory. Other documents in the file, such as
+ * sequence listings, are skipped.
+ */
+public class GrantXmlReader {
+
+    private final XMLInputFactory factory;
+
+    public GrantXmlReader() {
+
+        this.factory = XMLInputFactory.newInstance();
+
+        // The DTDs aren't shipped with the bulk files, and nothing in them is needed.
+        this.factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        this.factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        this.factory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, false);
+        this.factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+
+    }
+
+    /**
+     * Streams every grant in a bulk file to a consumer.
+     * @param xml The bulk file, which is closed once it has been read.
+     * @param consumer Takes each {@link Grant}.
+     */
+    public void read(final Reader xml, final Consumer<Grant> consumer) throws IOException {
+
+        try (Reader documents = new DocumentsReader(xml)) {
+
+            final XMLStreamReader reader = factory.createXMLStreamReader(documents);
+
+            try {
+                readGrants(reader, consumer);
+            } finally {
+                reader.close();
+            }
+
+        } catch (XMLStreamException ex) {
+
+            throw new IOException("Invalid USPTO bulk XML: " + ex.getMessage(), ex);
+
+        }
+
+    }
+
+    private void readGrants(final XMLStreamReader reader, final Consumer<Grant> consumer) throws XMLStreamException {
+
+        Grant grant = null;
+        Field field = Field.NONE;
+        int fieldDepth = 0;
+        int depth = 0;
+        boolean inPublicationReference = false;
+        final StringBuilder text = new StringBuilder();
+
+        while (reader.hasNext()) {
+
+            switch (reader.next()) {
+
+                case XMLStreamConstants.START_ELEMENT:
+
+                    depth++;
+
+                    final String name = reader.getLocalName();
+
+                    if(name.equals("us-patent-grant")) {
+
+                        grant = new Grant();
+
+                    } else if(grant != null && field == Field.NONE) {
+
+                        if(name.equals("publication-reference")) {
+                            inPublicationReference = true;
+                        } else if(name.equals("doc-number") && inPublicationReference && grant.getPatentNumber() == null) {
+                            field = Field.PATENT_NUMBER;
+                        } else if(name.equals("invention-title")) {
+                            field = Field.TITLE;
+                        } else if(name.equals("abstract")) {
+                            field = Field.ABSTRACT;
+                        } else if(name.equals("description")) {
+                            field = Field.DESCRIPTION;
+                        }
+
+                        if(field != Field.NONE) {
+                            fieldDepth = depth;
+                            text.setLength(0);
+                        }
+
+                    }
+
+                    break;
+
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+
+                    if(field != Field.NONE) {
+                        text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    }
+
+                    break;
+
+                case XMLStreamConstants.ENTITY_REFERENCE:
+
+                    // Undeclared entities, such as the ones for special characters, are kept as a space between words.
+                    if(field != Field.NONE) {
+                        text.append(' ');
+                    }
+
+                    break;
+
+                case XMLStreamConstants.END_ELEMENT:
+
+                    final String endName = reader.getLocalName();
+
+                    if(field != Field.NONE && depth == fieldDepth) {
+
+                        setField(grant, field, text);
+                        field = Field.NONE;
+
+                    } else if(field != Field.NONE && isBlock(endName)) {
+
+                        // Paragraphs and headings would otherwise run into each other.
+                        text.append(' ');
+
+                    } else if(endName.equals("publication-reference")) {
+
+                        inPublicationReference = false;
+
+                    } else if(endName.equals("us-patent-grant") && grant != null) {
+
+                        if(grant.getPatentNumber() != null) {
+                            consumer.accept(grant);
+                        }
+
+                        grant = null;
+
+                    }
+
+                    depth--;
+
+                    break;
+
+                default:
+                    break;
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Sets a grant field from the text collected for it.
+     * @param grant The {@link Grant}.
+     * @param field The {@link Field}.
+     * @param text The text of the field's element.
+     */
+    private static void setField(final Grant grant, final Field field, final StringBuilder text) {
+
+        final String value = collapseWhitespace(text);
+
+        switch (field) {
+            case PATENT_NUMBER:
+                grant.setPatentNumber(normalizePatentNumber(value));
+                break;
+            case TITLE:
+                grant.setInventionTitle(value);
+                break;
+            case ABSTRACT:
+                grant.setAbstractText(value);
+                break;
+            case DESCRIPTION:
+                grant.setDescriptionText(value);
+                break;
+            default:
+                break;
+        }
+
+    }
+
+    /**
+     * Bulk files zero-pad utility patent numbers to eight digits, e.g. <code>07654321</code>, where the USPTO API
+     * doesn't. Design and reissue numbers, e.g. <code>D0912345</code>, are kept as they are.
+     * @param docNumber The <code>doc-number</code>.
+     * @return The patent number.
+     */
+    static String normalizePatentNumber(final String docNumber) {
+
+        int start = 0;
+
+        while (start < docNumber.length() - 1 && docNumber.charAt(start) == '0') {
+            start++;
+        }
+
+        for (int i = start; i < docNumber.length(); i++) {
+
+            if(!Character.isDigit(docNumber.charAt(i))) {
+                return docNumber;
+            }
+
+        }
+
+        return docNumber.substring(start);
+
+    }
+
+    /**
+     * Collapses the line breaks and indentation of the XML into single spaces.
+     * @param text The text.
+     * @return The collapsed and trimmed text.
+     */
+    private static String collapseWhitespace(final CharSequence text) {
+
+        final StringBuilder collapsed = new StringBuilder(text.length());
+        boolean space = false;
+
+        for (int i = 0; i < text.length(); i++) {
+
+            final char c = text.charAt(i);
+
+            if(Character.isWhitespace(c)) {
+                space = collapsed.length() > 0;
+            } else {
+
+                if(space) {
+                    collapsed.append(' ');
+                    space = false;
+                }
+
+                collapsed.append(c);
+
+            }
+
+        }
+
+        return collapsed.toString();
+
+    }
+
+    private static boolean isBlock(final String name) {
+
+        return name.equals("p") || name.equals("heading") || name.equals("li") || name.equals("row");
+
+    }
+
+    /**
+     * The grant fields read from the XML.
+     */
+    private enum Field {
+
+        NONE,
+        PATENT_NUMBER,
+        TITLE,
+        ABSTRACT,
+        DESCRIPTION
+
+    }
+
+    /**
+     * Turns a bulk file into one XML document by dropping the XML declaration and DOCTYPE lines of each document
+     * in it and wrapping them all in a root element. The file is read a line at a time.
+     */
+    private static final class DocumentsReader extends Reader {
+
+        private static final String ROOT_START = "<bulk>\n";
+        private static final String ROOT_END = "</bulk>\n";
+
+        private final BufferedReader lines;
+        private String line = ROOT_START;
+        private int position;
+        private boolean ended;
+
+        private DocumentsReader(final Reader reader) {
+
+            this.lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader, 65536);
+
+        }
+
+        @Override
+        public int read(final char[] buffer, final int offset, final int length) throws IOException {
+
+            while (line != null && position == line.length()) {
+                nextLine();
+            }
+
+            if(line == null) {
+                return -1;
+            }
+
+            final int count = Math.min(length, line.length() - position);
+            line.getChars(position, position + count, buffer, offset);
+            position += count;
+
+            return count;
+
+        }
+
+        /**
+         * Moves on to the next line to pass through, or to <code>null</code> at the end.
+         */
+        private void nextLine() throws IOException {
+
+            position = 0;
+
+            if(ended) {
+                line = null;
+                return;
+            }
+
+            String next = lines.readLine();
+
+            while (next != null && (next.startsWith("<?xml ") || next.startsWith("<!DOCTYPE"))) {
+                next = lines.readLine();
+            }
+
+            if(next == null) {
+                line = ROOT_END;
+                ended = true;
+            } else {
+                line = next + '\n';
+            }
+
+        }
+
+        @Override
+        public void close() throws IOException {
+
+            lines.close();
+
+        }
+
+    }
+
+}
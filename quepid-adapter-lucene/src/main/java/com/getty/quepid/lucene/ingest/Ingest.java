@@ -0,0 +1,87 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.lucene.ingest;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds or adds to the local index the adapter searches when <code>quepid.backend=lucene</code>.
+ * <pre>
+ * java -jar lucene-ingest.jar --index=lucene-index --threads=4 ipg210105.zip ipg210112.zip
+ * </pre>
+ * Options are <code>--index</code> (default <code>lucene-index</code>), <code>--threads</code> (default the number
+ * of processors), <code>--queue-size</code> (1000 grants), <code>--ram-buffer-mb</code> (256) and
+ * <code>--description-max-length</code> (10000 stored description characters, 0 to store them all).
+ */
+public class Ingest {
+
+    public static void main(String[] args) throws Exception {
+
+        final Map<String, String> options = new HashMap<>();
+        final List<Path> files = new ArrayList<>();
+
+        for (final String arg : args) {
+
+            final int equals = arg.indexOf('=');
+
+            if(arg.startsWith("--") && equals > 0) {
+                options.put(arg.substring(2, equals), arg.substring(equals + 1));
+            } else {
+                files.add(Paths.get(arg));
+            }
+
+        }
+
+        if(files.isEmpty()) {
+            System.err.println("Usage: lucene-ingest.jar [--index=lucene-index] [--threads=n] [--name=value ...] file...");
+            System.exit(1);
+        }
+
+        final Path index = Paths.get(options.getOrDefault("index", "lucene-index"));
+        final int threads = Integer.parseInt(options.getOrDefault("threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+        final int queueSize = Integer.parseInt(options.getOrDefault("queue-size", "1000"));
+        final double ramBufferMb = Double.parseDouble(options.getOrDefault("ram-buffer-mb", "256"));
+        final int descriptionMaxLength = Integer.parseInt(options.getOrDefault("description-max-length", "10000"));
+
+        final long startTime = System.nanoTime();
+
+        try (Ingester ingester = new Ingester(index, threads, queueSize, ramBufferMb, descriptionMaxLength)) {
+
+            final long count = ingester.ingest(files);
+            final double seconds = (System.nanoTime() - startTime) / (double) TimeUnit.SECONDS.toNanos(1);
+
+            System.out.printf("Indexed %d grants into %s in %.1fs (%.0f grants/s) with %d threads%n",
+                    count, index, seconds, count / seconds, threads);
+
+        }
+
+    }
+
+}
@@ -0,0 +1,341 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.lucene.ingest;
+
+import com.getty.quepid.lucene.GrantDocuments;
+import com.getty.quepid.uspto.model.Grant;
+import com.getty.quepid.uspto.services.GrantReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.FSDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Indexes USPTO bulk grant files into a local Lucene index.
+ * <p>
+ * The files are read on the calling thread and the grants are handed to <code>threads</code> indexing threads through
+ * a queue of at most <code>queueSize</code> grants, so memory use doesn't grow with the size of the files. Lucene
+ * indexes on each thread separately and only merges when it flushes. Grants are added by patent number, so
+ * ingesting a file again replaces its grants rather than duplicating them.
+ * <p>
+ * Grants are only committed once every file has been indexed. If an ingest fails, everything it indexed is rolled back,
+ * so the index is left as it was rather than with some of the files in it.
+ * <p>
+ * Files can be bulk grant XML (<code>.xml</code>) or JSON in any of the shapes the USPTO API returns
+ * (<code>.json</code>), and either can be gzipped (<code>.gz</code>) or in a zip file (<code>.zip</code>), as the
+ * USPTO publishes them.
+ */
+public class Ingester implements Closeable {
+
+    private final Logger LOGGER = LoggerFactory.getLogger(Ingester.class);
+
+    // Tells an indexing thread there are no more grants.
+    private static final Grant END = new Grant();
+
+    private static final long PROGRESS_INTERVAL = 10000;
+
+    private final IndexWriter writer;
+    private final int threads;
+    private final int queueSize;
+    private final int descriptionMaxLength;
+    private final AtomicLong indexedCount = new AtomicLong();
+
+    /**
+     * Opens the index for ingesting, creating it if it doesn't exist.
+     * @param indexPath The index directory.
+     * @param threads The number of indexing threads.
+     * @param queueSize The number of read grants waiting to be indexed.
+     * @param ramBufferMb The memory Lucene buffers documents in before it writes a segment.
+     * @param descriptionMaxLength The number of description characters to store, or 0 to store them all.
+     */
+    public Ingester(final Path indexPath, final int threads, final int queueSize, final double ramBufferMb,
+                    final int descriptionMaxLength) throws IOException {
+
+        final IndexWriterConfig config = new IndexWriterConfig(GrantDocuments.newAnalyzer())
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND)
+                .setRAMBufferSizeMB(ramBufferMb)
+                .setCommitOnClose(false);
+
+        this.writer = new IndexWriter(FSDirectory.open(indexPath), config);
+        this.threads = threads;
+        this.queueSize = queueSize;
+        this.descriptionMaxLength = descriptionMaxLength;
+
+    }
+
+    /**
+     * Indexes the grants in bulk files and commits them. If indexing fails, none of the grants are committed and the
+     * ingester is closed.
+     * @param files The bulk files.
+     * @return The number of grants indexed.
+     */
+    public long ingest(final List<Path> files) throws IOException, InterruptedException {
+
+        try {
+
+            final long count = indexFiles(files);
+
+            writer.commit();
+
+            return count;
+
+        } catch (IOException | InterruptedException | RuntimeException ex) {
+
+            try {
+                writer.rollback();
+            } catch (IOException | RuntimeException rollbackEx) {
+                ex.addSuppressed(rollbackEx);
+            }
+
+            throw ex;
+
+        }
+
+    }
+
+    /**
+     * Indexes the grants in bulk files, without committing them.
+     * @param files The bulk files.
+     * @return The number of grants indexed.
+     */
+    private long indexFiles(final List<Path> files) throws IOException, InterruptedException {
+
+        final BlockingQueue<Grant> queue = new ArrayBlockingQueue<>(queueSize);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final List<Thread> indexers = new ArrayList<>(threads);
+        final long startCount = indexedCount.get();
+
+        for (int i = 0; i < threads; i++) {
+
+            final Thread indexer = new Thread(() -> index(queue, failure), "lucene-indexer-" + i);
+            indexer.start();
+            indexers.add(indexer);
+
+        }
+
+        try {
+
+            final Consumer<Grant> enqueue = grant -> {
+
+                // Stop reading as soon as indexing has failed.
+                if(failure.get() != null) {
+                    throw new UncheckedIOException(new IOException("Indexing failed", failure.get()));
+                }
+
+                try {
+                    queue.put(grant);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new UncheckedIOException(new InterruptedIOException("Interrupted while ingesting"));
+                }
+
+            };
+
+            for (final Path file : files) {
+
+                LOGGER.info("Ingesting {}", file);
+                readFile(file, enqueue);
+
+            }
+
+        } finally {
+
+            // Every indexing thread stops when it takes an END, even if reading failed part way.
+            for (int i = 0; i < threads; i++) {
+                queue.put(END);
+            }
+
+            for (final Thread indexer : indexers) {
+                indexer.join();
+            }
+
+        }
+
+        if(failure.get() != null) {
+            throw new IOException("Indexing failed", failure.get());
+        }
+
+        return indexedCount.get() - startCount;
+
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        writer.close();
+
+    }
+
+    /**
+     * Indexes grants from the queue until it takes an {@link #END}.
+     * After a failure the remaining grants are drained without being indexed, so the reading thread never blocks.
+     * @param queue The queue of grants.
+     * @param failure Where the first failure is recorded.
+     */
+    private void index(final BlockingQueue<Grant> queue, final AtomicReference<Throwable> failure) {
+
+        while (true) {
+
+            final Grant grant;
+
+            try {
+                grant = queue.take();
+            } catch (InterruptedException ex) {
+                failure.compareAndSet(null, ex);
+                return;
+            }
+
+            if(grant == END) {
+                return;
+            }
+
+            if(failure.get() != null) {
+                continue;
+            }
+
+            try {
+
+                writer.updateDocument(new Term(GrantDocuments.ID, grant.getPatentNumber()),
+                        GrantDocuments.toDocument(grant, descriptionMaxLength));
+
+                final long count = indexedCount.incrementAndGet();
+
+                if(count % PROGRESS_INTERVAL == 0) {
+                    LOGGER.info("Indexed {} grants", count);
+                }
+
+            } catch (IOException | RuntimeException ex) {
+                failure.compareAndSet(null, ex);
+            }
+
+        }
+
+    }
+
+    /**
+     * Reads the grants in a bulk file, unpacking it first if it is gzipped or zipped.
+     * A failure to hand a grant to the indexing threads stops the reading.
+     * @param file The bulk file.
+     * @param consumer Takes each {@link Grant}.
+     */
+    private void readFile(final Path file, final Consumer<Grant> consumer) throws IOException {
+
+        final String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+
+        try (InputStream in = Files.newInputStream(file)) {
+
+            if(name.endsWith(".zip")) {
+
+                final ZipInputStream zip = new ZipInputStream(in);
+                ZipEntry entry;
+
+                while ((entry = zip.getNextEntry()) != null) {
+
+                    if(!entry.isDirectory()) {
+                        read(entry.getName().toLowerCase(Locale.ROOT), new NonClosingInputStream(zip), consumer);
+                    }
+
+                }
+
+            } else if(name.endsWith(".gz")) {
+
+                read(name.substring(0, name.length() - 3), new GZIPInputStream(in, 65536), consumer);
+
+            } else {
+
+                read(name, in, consumer);
+
+            }
+
+        } catch (UncheckedIOException ex) {
+
+            throw ex.getCause();
+
+        }
+
+    }
+
+    /**
+     * Reads the grants in an unpacked bulk file.
+     * @param name The lower case file name, which tells XML from JSON.
+     * @param in The file contents.
+     * @param consumer Takes each {@link Grant}.
+     */
+    private void read(final String name, final InputStream in, final Consumer<Grant> consumer) throws IOException {
+
+        final Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+
+        if(name.endsWith(".xml")) {
+            new GrantXmlReader().read(reader, consumer);
+        } else if(name.endsWith(".json")) {
+            new GrantReader(0).stream(reader, consumer);
+        } else {
+            LOGGER.warn("Skipping {}, only .xml and .json bulk files can be ingested", name);
+        }
+
+    }
+
+    /**
+     * Lets each entry of a zip file be read and closed without closing the zip file.
+     */
+    private static final class NonClosingInputStream extends FilterInputStream {
+
+        private NonClosingInputStream(final InputStream in) {
+
+            super(in);
+
+        }
+
+        @Override
+        public void close() {
+        }
+
+    }
+
+}
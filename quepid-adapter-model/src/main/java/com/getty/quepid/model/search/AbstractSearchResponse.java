@@ -1,16 +1,18 @@
 package com.getty.quepid.model.search;
 
+import com.getty.quepid.model.solr.SolrResponse;
+
 public abstract class AbstractSearchResponse {
 
     private long searchTime;
-    private String json;
+    private SolrResponse solrResponse;
 
-    public String getJson() {
-        return json;
+    public SolrResponse getSolrResponse() {
+        return solrResponse;
     }
 
-    public void setJson(String json) {
-        this.json = json;
+    public void setSolrResponse(SolrResponse solrResponse) {
+        this.solrResponse = solrResponse;
     }
 
     public long getSearchTime() {
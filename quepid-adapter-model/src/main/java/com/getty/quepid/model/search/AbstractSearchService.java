@@ -3,6 +3,10 @@ package com.getty.quepid.model.search;
 import com.getty.quepid.model.solr.Doc;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public abstract class AbstractSearchService<T extends AbstractSearchRequest, V extends AbstractSearchResponse> {
 
@@ -10,4 +14,115 @@ public abstract class AbstractSearchService<T extends AbstractSearchRequest, V e
 
     public abstract Doc getDocument(String id) throws Exception;
 
+    /**
+     * Gets a batch of documents by ID. The documents are returned in the order the IDs were given
+     * and IDs for which no document is returned are skipped. Implementations should override this
+     * if their backend can do better than one lookup at a time.
+     * @param ids The document IDs.
+     * @return The list of {@link Doc docs}.
+     */
+    public List<Doc> getDocuments(Collection<String> ids) throws Exception {
+
+        final List<Doc> docs = new ArrayList<>(ids.size());
+
+        for (final String id : ids) {
+
+            final Doc doc = getDocument(id);
+
+            if (doc != null) {
+                docs.add(doc);
+            }
+
+        }
+
+        return docs;
+
+    }
+
+    /**
+     * Searches without blocking the calling thread. This default runs the blocking {@link #search}
+     * on the calling thread; implementations with a non-blocking client should override it.
+     * @param genericSearchRequest The search request.
+     * @return The search response.
+     */
+    public CompletableFuture<V> searchAsync(T genericSearchRequest) {
+
+        try {
+            return CompletableFuture.completedFuture(search(genericSearchRequest));
+        } catch (Exception ex) {
+            return Futures.failed(ex);
+        }
+
+    }
+
+    /**
+     * Gets a document without blocking the calling thread. This default runs the blocking
+     * {@link #getDocument} on the calling thread; implementations with a non-blocking client should override it.
+     * @param id The document ID.
+     * @return The {@link Doc}.
+     */
+    public CompletableFuture<Doc> getDocumentAsync(String id) {
+
+        try {
+            return CompletableFuture.completedFuture(getDocument(id));
+        } catch (Exception ex) {
+            return Futures.failed(ex);
+        }
+
+    }
+
+    /**
+     * Gets a batch of documents without blocking the calling thread, with the same ordering as {@link #getDocuments}.
+     * @param ids The document IDs.
+     * @return The list of {@link Doc docs}.
+     */
+    public CompletableFuture<List<Doc>> getDocumentsAsync(Collection<String> ids) {
+
+        try {
+            return CompletableFuture.completedFuture(getDocuments(ids));
+        } catch (Exception ex) {
+            return Futures.failed(ex);
+        }
+
+    }
+
+    /**
+     * Searches without blocking the calling thread, on behalf of a caller with a {@link Priority}.
+     * This default ignores the priority; implementations that share an upstream budget between callers should override it.
+     * @param genericSearchRequest The search request.
+     * @param priority The {@link Priority} of the search.
+     * @return The search response.
+     */
+    public CompletableFuture<V> searchAsync(T genericSearchRequest, Priority priority) {
+
+        return searchAsync(genericSearchRequest);
+
+    }
+
+    /**
+     * Gets a document without blocking the calling thread, on behalf of a caller with a {@link Priority}.
+     * This default ignores the priority; implementations that share an upstream budget between callers should override it.
+     * @param id The document ID.
+     * @param priority The {@link Priority} of the lookup.
+     * @return The {@link Doc}.
+     */
+    public CompletableFuture<Doc> getDocumentAsync(String id, Priority priority) {
+
+        return getDocumentAsync(id);
+
+    }
+
+    /**
+     * Gets a batch of documents without blocking the calling thread, on behalf of a caller with a {@link Priority}.
+     * This default ignores the priority; implementations that share an upstream budget between callers should override it.
+     * @param ids The document IDs.
+     * @param priority The {@link Priority} of the lookups.
+     * @return The list of {@link Doc docs}.
+     */
+    public CompletableFuture<List<Doc>> getDocumentsAsync(Collection<String> ids, Priority priority) {
+
+        return getDocumentsAsync(ids);
+
+    }
+
 }
@@ -0,0 +1,136 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.model.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads the lines of the CSV files Quepid exports, such as the ratings CSV of a case.
+ */
+public final class CsvLines {
+
+    private CsvLines() {
+    }
+
+    /**
+     * Removes a byte order mark from the first line of a file, which spreadsheet exports often start with.
+     * @param line The first line or <code>null</code>.
+     * @return The line without a byte order mark.
+     */
+    public static String stripByteOrderMark(final String line) {
+
+        return line != null && line.startsWith("\uFEFF") ? line.substring(1) : line;
+
+    }
+
+    /**
+     * Finds a column in a CSV header.
+     * @param header The header columns.
+     * @param names The lower case names the column may have.
+     * @return The column index or <code>-1</code> if there is no such column.
+     */
+    public static int indexOf(final List<String> header, final String... names) {
+
+        for(int i = 0; i < header.size(); i++) {
+
+            final String column = header.get(i).trim().toLowerCase(Locale.ROOT);
+
+            for(final String name : names) {
+
+                if(column.equals(name)) {
+                    return i;
+                }
+
+            }
+
+        }
+
+        return -1;
+
+    }
+
+    /**
+     * Gets a column of a CSV line.
+     * @param columns The columns.
+     * @param index The column index, or <code>-1</code> if there is no such column.
+     * @return The trimmed column, or an empty string if the line doesn't have it.
+     */
+    public static String get(final List<String> columns, final int index) {
+
+        return index >= 0 && index < columns.size() ? columns.get(index).trim() : "";
+
+    }
+
+    /**
+     * Splits a CSV line into columns. Quoted columns may contain commas and doubled quotes.
+     * @param line The line.
+     * @return The columns.
+     */
+    public static List<String> parse(final String line) {
+
+        final List<String> columns = new ArrayList<>();
+        final StringBuilder column = new StringBuilder();
+        boolean quoted = false;
+
+        for(int i = 0; i < line.length(); i++) {
+
+            final char c = line.charAt(i);
+
+            if(quoted) {
+
+                if(c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    column.append('"');
+                    i++;
+                } else if(c == '"') {
+                    quoted = false;
+                } else {
+                    column.append(c);
+                }
+
+            } else if(c == '"') {
+
+                quoted = true;
+
+            } else if(c == ',') {
+
+                columns.add(column.toString());
+                column.setLength(0);
+
+            } else {
+
+                column.append(c);
+
+            }
+
+        }
+
+        columns.add(column.toString());
+
+        return columns;
+
+    }
+
+}
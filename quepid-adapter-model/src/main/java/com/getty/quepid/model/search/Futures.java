@@ -0,0 +1,83 @@
+package com.getty.quepid.model.search;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Helpers for working with {@link CompletableFuture CompletableFutures} from blocking code.
+ */
+public final class Futures {
+
+    private Futures() {
+    }
+
+    /**
+     * Creates a future that has already failed.
+     * @param throwable The failure.
+     * @return The failed {@link CompletableFuture}.
+     */
+    public static <V> CompletableFuture<V> failed(final Throwable throwable) {
+
+        final CompletableFuture<V> future = new CompletableFuture<>();
+        future.completeExceptionally(throwable);
+
+        return future;
+
+    }
+
+    /**
+     * Waits for a future and rethrows its failure the way the blocking call would have thrown it.
+     * @param future The {@link CompletableFuture}.
+     * @return The result.
+     */
+    public static <V> V await(final CompletableFuture<V> future) throws IOException {
+
+        try {
+
+            return future.get();
+
+        } catch (InterruptedException ex) {
+
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a result");
+
+        } catch (ExecutionException ex) {
+
+            final Throwable cause = unwrap(ex);
+
+            if(cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if(cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if(cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw new IOException(cause);
+
+        }
+
+    }
+
+    /**
+     * Gets the actual failure out of the wrappers {@link CompletableFuture} adds.
+     * @param throwable The failure.
+     * @return The underlying failure.
+     */
+    public static Throwable unwrap(final Throwable throwable) {
+
+        Throwable cause = throwable;
+
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+
+        return cause;
+
+    }
+
+}
@@ -0,0 +1,66 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.model.search;
+
+import java.util.Locale;
+
+/**
+ * How urgent a search or lookup is, for backends that share a limited upstream budget between callers.
+ * The constants are in order of urgency, most urgent first.
+ */
+public enum Priority {
+
+    /**
+     * A request from Quepid, with a rater waiting on it.
+     */
+    INTERACTIVE,
+
+    /**
+     * Work someone is waiting on as a whole, such as a case evaluation.
+     */
+    BATCH,
+
+    /**
+     * Work done ahead of time that nobody is waiting on, such as cache warm-ups and refreshes.
+     */
+    PREFETCH;
+
+    /**
+     * Gets the name the priority is tagged with in metrics.
+     * @return The lower case name.
+     */
+    public String getTag() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Checks whether this priority goes ahead of another.
+     * @param other The other {@link Priority}.
+     * @return <code>true</code> if this priority is more urgent.
+     */
+    public boolean isMoreUrgentThan(final Priority other) {
+        return ordinal() < other.ordinal();
+    }
+
+}
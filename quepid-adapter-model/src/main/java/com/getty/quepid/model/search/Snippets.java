@@ -0,0 +1,72 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.model.search;
+
+/**
+ * Shortens long text, such as patent descriptions, to snippets.
+ */
+public final class Snippets {
+
+    // ASCII rather than U+2026, which would make an otherwise Latin-1 String store two bytes per character.
+    private static final String ELLIPSIS = "...";
+
+    private Snippets() {
+    }
+
+    /**
+     * Shortens text to a snippet of at most <code>maxLength</code> characters, counting the ellipsis that marks it.
+     * The snippet ends at a word boundary, if there is one in the second half of it. A limit too short for the
+     * ellipsis just cuts the text.
+     * @param text The text.
+     * @param maxLength The maximum number of characters to keep, or 0 to keep them all.
+     * @return The snippet, or the text itself when it is short enough.
+     */
+    public static String truncate(final String text, final int maxLength) {
+
+        if(text == null || maxLength <= 0 || text.length() <= maxLength) {
+            return text;
+        }
+
+        if(maxLength <= ELLIPSIS.length()) {
+            return text.substring(0, maxLength);
+        }
+
+        // The ellipsis comes out of the snippet's length.
+        final int maxTextLength = maxLength - ELLIPSIS.length();
+        int end = maxTextLength;
+
+        while (end > maxTextLength / 2 && !Character.isWhitespace(text.charAt(end))) {
+            end--;
+        }
+
+        // No word boundary in the second half, so cut the word.
+        if(!Character.isWhitespace(text.charAt(end))) {
+            end = maxTextLength;
+        }
+
+        return text.substring(0, end).trim() + ELLIPSIS;
+
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.getty.quepid.model.search;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates executors that run each task on its own virtual thread.
+ * The project is built for Java 8, so the Java 21 virtual thread API is looked up reflectively
+ * and is only available when the adapter runs on Java 21 or later.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * Checks whether the running JVM has virtual threads.
+     * @return <code>true</code> if virtual threads are available.
+     */
+    public static boolean isSupported() {
+
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException ex) {
+            return false;
+        }
+
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for every task.
+     * @param namePrefix The prefix for the thread names, followed by a counter.
+     * @return The {@link ExecutorService}.
+     * @throws IllegalStateException if the JVM doesn't have virtual threads.
+     */
+    public static ExecutorService newExecutor(final String namePrefix) {
+
+        if(!isSupported()) {
+            throw new IllegalStateException("Virtual threads need Java 21 or later but this is Java " + System.getProperty("java.version"));
+        }
+
+        try {
+
+            final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+
+            builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+
+            final ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            final Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+
+            return (ExecutorService) newThreadPerTaskExecutor.invoke(null, threadFactory);
+
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException | InvocationTargetException ex) {
+
+            throw new IllegalStateException("Unable to create a virtual thread executor", ex);
+
+        }
+
+    }
+
+}
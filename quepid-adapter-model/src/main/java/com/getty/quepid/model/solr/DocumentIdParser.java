@@ -0,0 +1,60 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.model.solr;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses the document IDs out of the <code>id:(...)</code> queries Quepid sends for snapshot comparisons,
+ * e.g. <code>q=id:(12697 OR 18645 OR 26965 OR 71714 OR 81899)</code>.
+ */
+public final class DocumentIdParser {
+
+    private static final Pattern DOCUMENT_ID = Pattern.compile("[0-9]+");
+
+    private DocumentIdParser() {
+    }
+
+    /**
+     * Gets the document IDs in a query.
+     * @param query The query.
+     * @return The document IDs in the order they appear in the query.
+     */
+    public static List<String> parse(final String query) {
+
+        final Matcher matcher = DOCUMENT_ID.matcher(query);
+        final List<String> documentIds = new ArrayList<>();
+
+        while (matcher.find()) {
+            documentIds.add(matcher.group());
+        }
+
+        return documentIds;
+
+    }
+
+}
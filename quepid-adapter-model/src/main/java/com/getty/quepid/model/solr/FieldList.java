@@ -0,0 +1,230 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.model.solr;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The fields a Solr request asks for with <code>fl</code>, limited to the fields a {@link Doc} has.
+ * Fields can be separated by commas or spaces. No <code>fl</code>, or one containing <code>*</code>, asks for every field.
+ * Fields a {@link Doc} doesn't have, such as <code>score</code>, are ignored.
+ */
+public final class FieldList {
+
+    public static final FieldList ALL = new FieldList(true, true, true, true, true);
+
+    private final boolean id;
+    private final boolean title;
+    private final boolean description;
+    private final boolean link;
+    private final boolean image;
+
+    private FieldList(final boolean id, final boolean title, final boolean description, final boolean link, final boolean image) {
+
+        this.id = id;
+        this.title = title;
+        this.description = description;
+        this.link = link;
+        this.image = image;
+
+    }
+
+    /**
+     * Parses an <code>fl</code> parameter.
+     * @param fl The parameter value or <code>null</code>.
+     * @return The {@link FieldList}.
+     */
+    public static FieldList parse(final String fl) {
+
+        if(fl == null || fl.trim().isEmpty()) {
+            return ALL;
+        }
+
+        boolean id = false;
+        boolean title = false;
+        boolean description = false;
+        boolean link = false;
+        boolean image = false;
+
+        for(final String field : fl.trim().split("[,\\s]+")) {
+
+            switch (field.toLowerCase(Locale.ROOT)) {
+                case "*":
+                    return ALL;
+                case "id":
+                    id = true;
+                    break;
+                case "title":
+                    title = true;
+                    break;
+                case "description":
+                    description = true;
+                    break;
+                case "link":
+                    link = true;
+                    break;
+                case "image":
+                    image = true;
+                    break;
+                default:
+                    break;
+            }
+
+        }
+
+        return new FieldList(id, title, description, link, image);
+
+    }
+
+    public boolean isAll() {
+        return id && title && description && link && image;
+    }
+
+    public boolean includesId() {
+        return id;
+    }
+
+    public boolean includesTitle() {
+        return title;
+    }
+
+    public boolean includesDescription() {
+        return description;
+    }
+
+    public boolean includesLink() {
+        return link;
+    }
+
+    public boolean includesImage() {
+        return image;
+    }
+
+    /**
+     * Copies the requested fields of a doc. The doc itself is left alone because it may be cached.
+     * @param doc The {@link Doc}.
+     * @return A {@link Doc} with only the requested fields, or the doc itself when every field is requested.
+     */
+    public Doc project(final Doc doc) {
+
+        if(isAll()) {
+            return doc;
+        }
+
+        final Doc projected = new Doc(id ? doc.getId() : null);
+
+        if(title) {
+            projected.setTitle(doc.getTitle());
+        }
+
+        if(description) {
+            projected.setDescription(doc.getDescription());
+        }
+
+        if(link) {
+            projected.setLink(doc.getLink());
+        }
+
+        if(image) {
+            projected.setImage(doc.getImage());
+        }
+
+        return projected;
+
+    }
+
+    /**
+     * Copies the requested fields of each doc.
+     * @param docs The list of {@link Doc docs}.
+     * @return The projected {@link Doc docs}.
+     */
+    public List<Doc> project(final List<Doc> docs) {
+
+        if(isAll()) {
+            return docs;
+        }
+
+        final List<Doc> projected = new ArrayList<>(docs.size());
+
+        for(final Doc doc : docs) {
+            projected.add(project(doc));
+        }
+
+        return projected;
+
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        FieldList that = (FieldList) o;
+        return id == that.id
+                && title == that.title
+                && description == that.description
+                && link == that.link
+                && image == that.image;
+    }
+
+    @Override
+    public int hashCode() {
+        return (id ? 1 : 0) | (title ? 2 : 0) | (description ? 4 : 0) | (link ? 8 : 0) | (image ? 16 : 0);
+    }
+
+    @Override
+    public String toString() {
+
+        if(isAll()) {
+            return "*";
+        }
+
+        final List<String> fields = new ArrayList<>();
+
+        if(id) {
+            fields.add("id");
+        }
+
+        if(title) {
+            fields.add("title");
+        }
+
+        if(description) {
+            fields.add("description");
+        }
+
+        if(link) {
+            fields.add("link");
+        }
+
+        if(image) {
+            fields.add("image");
+        }
+
+        return String.join(",", fields);
+
+    }
+
+}
@@ -0,0 +1,69 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.model.solr;
+
+/**
+ * The kinds of request Quepid makes, told apart by the query.
+ */
+public enum QueryType {
+
+    /**
+     * <code>q=*:*</code>, which Quepid sends to check the endpoint works.
+     */
+    PING("ping"),
+
+    /**
+     * <code>q=id:(12697 OR 18645)</code>, which Quepid sends for snapshot comparisons.
+     */
+    MULTI_ID("multi-id"),
+
+    /**
+     * <code>q=id:12697</code>, which Quepid sends to show the details of a document.
+     */
+    SINGLE_ID("single-id"),
+
+    /**
+     * Any other query, which is a search.
+     */
+    SEARCH("search");
+
+    private final String tag;
+
+    QueryType(final String tag) {
+
+        this.tag = tag;
+
+    }
+
+    /**
+     * Gets the name the query type is tagged with in logs and metrics.
+     * @return The tag.
+     */
+    public String getTag() {
+
+        return tag;
+
+    }
+
+}
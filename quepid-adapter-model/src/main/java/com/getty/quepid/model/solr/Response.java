@@ -33,8 +33,14 @@ public class Response {
 
     public Response(List<Doc> docs) {
 
-        this.numFound = docs.size();
-        this.start = 0;
+        this(docs, docs.size(), 0);
+
+    }
+
+    public Response(List<Doc> docs, int numFound, int start) {
+
+        this.numFound = numFound;
+        this.start = start;
         this.docs = docs;
 
     }
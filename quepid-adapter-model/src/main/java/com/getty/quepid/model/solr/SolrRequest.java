@@ -0,0 +1,135 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.model.solr;
+
+import java.util.List;
+
+/**
+ * A Solr <code>/select</code> request, parsed from its parameters by {@link SolrRequestParser}.
+ */
+public final class SolrRequest {
+
+    private final String query;
+    private final QueryType queryType;
+    private final List<String> documentIds;
+    private final List<String> filterQueries;
+    private final int start;
+    private final int rows;
+    private final FieldList fields;
+    private final List<SortClause> sort;
+    private final boolean indent;
+    private final boolean debug;
+    private final String jsonWrf;
+
+    SolrRequest(final String query, final QueryType queryType, final List<String> documentIds, final List<String> filterQueries,
+                final int start, final int rows, final FieldList fields, final List<SortClause> sort,
+                final boolean indent, final boolean debug, final String jsonWrf) {
+
+        this.query = query;
+        this.queryType = queryType;
+        this.documentIds = documentIds;
+        this.filterQueries = filterQueries;
+        this.start = start;
+        this.rows = rows;
+        this.fields = fields;
+        this.sort = sort;
+        this.indent = indent;
+        this.debug = debug;
+        this.jsonWrf = jsonWrf;
+
+    }
+
+    /**
+     * Gets the query, <code>q</code>.
+     * @return The query.
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    public QueryType getQueryType() {
+        return queryType;
+    }
+
+    /**
+     * Gets the document IDs of an <code>id:</code> query.
+     * @return The document IDs in the order they appear in the query, empty for other queries.
+     */
+    public List<String> getDocumentIds() {
+        return documentIds;
+    }
+
+    /**
+     * Gets the filter queries, <code>fq</code>.
+     * @return The filter queries, empty if there are none.
+     */
+    public List<String> getFilterQueries() {
+        return filterQueries;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Gets the fields to return, <code>fl</code>.
+     * @return The {@link FieldList}.
+     */
+    public FieldList getFields() {
+        return fields;
+    }
+
+    /**
+     * Gets the sort order, <code>sort</code>.
+     * @return The {@link SortClause sort clauses}, empty for Solr's default of relevance.
+     */
+    public List<SortClause> getSort() {
+        return sort;
+    }
+
+    public boolean isIndent() {
+        return indent;
+    }
+
+    /**
+     * Checks whether debug information was asked for with <code>debug</code> or <code>debugQuery</code>.
+     * @return <code>true</code> if debug information was asked for.
+     */
+    public boolean isDebug() {
+        return debug;
+    }
+
+    /**
+     * Gets the JSONP callback, <code>json.wrf</code>.
+     * @return The callback, empty if the response isn't JSONP.
+     */
+    public String getJsonWrf() {
+        return jsonWrf;
+    }
+
+}
@@ -0,0 +1,265 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.model.solr;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Parses the parameters of a Solr <code>/select</code> request into a {@link SolrRequest}.
+ * <p>
+ * Supports <code>q</code>, <code>fq</code>, <code>start</code>, <code>rows</code>, <code>fl</code>, <code>sort</code>,
+ * <code>wt</code> (json only), <code>indent</code>, <code>debug</code>/<code>debugQuery</code> and <code>json.wrf</code>.
+ * Other parameters are ignored, as Quepid sends some that only mean something to Solr. <code>rows</code> is capped, as
+ * every row is a document fetched from the search service.
+ * <p>
+ * Quepid sends the same snapshot queries, field lists and sorts over and over, so their parsed forms are cached and shared
+ * between requests. Everything in a {@link SolrRequest} is immutable, which makes that safe.
+ */
+public class SolrRequestParser {
+
+    private static final Pattern SORT_CLAUSES = Pattern.compile("\\s*,\\s*");
+    private static final Pattern SORT_CLAUSE = Pattern.compile("\\s+");
+
+    private static final int DEFAULT_ROWS = 10;
+
+    private static final ParsedQuery PING = new ParsedQuery(QueryType.PING, Collections.emptyList());
+    private static final ParsedQuery SEARCH = new ParsedQuery(QueryType.SEARCH, Collections.emptyList());
+
+    private final Cache<String, ParsedQuery> queries;
+    private final Cache<String, FieldList> fieldLists;
+    private final Cache<String, List<SortClause>> sorts;
+
+    private final int maxRows;
+
+    /**
+     * Creates a parser.
+     * @param maxCacheSize The number of distinct snapshot queries, and of field lists and sorts, to keep parsed.
+     * @param maxRows The largest <code>rows</code> a request can ask for.
+     */
+    public SolrRequestParser(final long maxCacheSize, final int maxRows) {
+
+        this.maxRows = maxRows;
+
+        this.queries = Caffeine.newBuilder().maximumSize(maxCacheSize).build();
+        this.fieldLists = Caffeine.newBuilder().maximumSize(maxCacheSize).build();
+        this.sorts = Caffeine.newBuilder().maximumSize(maxCacheSize).build();
+
+    }
+
+    /**
+     * Parses a request.
+     * @param parameters The request parameters, as a servlet request has them.
+     * @return The {@link SolrRequest}.
+     * @throws InvalidSolrRequestException If a parameter is missing, malformed or not supported, or asks for too many rows.
+     */
+    public SolrRequest parse(final Map<String, String[]> parameters) {
+
+        final String query = getFirst(parameters, "q");
+
+        if(query == null) {
+            throw new InvalidSolrRequestException("Missing required parameter: q");
+        }
+
+        final String wt = getFirst(parameters, "wt");
+
+        if(wt != null && !wt.equalsIgnoreCase("json")) {
+            throw new InvalidSolrRequestException("Unsupported wt: " + wt + ", only json is supported");
+        }
+
+        final int start = getInt(parameters, "start", 0);
+        final int rows = getInt(parameters, "rows", Math.min(DEFAULT_ROWS, maxRows));
+
+        if(rows > maxRows) {
+            throw new InvalidSolrRequestException("'rows' parameter cannot be greater than " + maxRows);
+        }
+
+        // The backends work out the end of the page as start + rows, which mustn't overflow.
+        if((long) start + rows > Integer.MAX_VALUE) {
+            throw new InvalidSolrRequestException("'start' + 'rows' cannot be greater than " + Integer.MAX_VALUE);
+        }
+
+        final ParsedQuery parsedQuery = parseQuery(query);
+
+        final String[] fl = parameters.get("fl");
+        final FieldList fields = fl == null ? FieldList.ALL : fieldLists.get(String.join(",", fl), FieldList::parse);
+
+        final String sortSpec = getFirst(parameters, "sort");
+        final List<SortClause> sort = sortSpec == null || sortSpec.trim().isEmpty()
+                ? Collections.emptyList()
+                : sorts.get(sortSpec, SolrRequestParser::parseSort);
+
+        final String[] fq = parameters.get("fq");
+        final List<String> filterQueries = fq == null ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(fq.clone()));
+
+        final boolean indent = getBoolean(parameters, "indent");
+        final String debugValue = getFirst(parameters, "debug");
+        final boolean debug = getBoolean(parameters, "debugQuery") || (debugValue != null && !debugValue.equalsIgnoreCase("false"));
+
+        final String jsonWrf = getFirst(parameters, "json.wrf");
+
+        return new SolrRequest(query, parsedQuery.queryType, parsedQuery.documentIds, filterQueries, start, rows, fields, sort,
+                indent, debug, jsonWrf == null ? "" : jsonWrf);
+
+    }
+
+    /**
+     * Works out which kind of request Quepid is making from the query, and gets the document IDs of an <code>id:</code> query.
+     * Only the ID lists of snapshot queries are worth caching, the other kinds of query are quicker to classify than to look up.
+     * @param query The query.
+     * @return The {@link ParsedQuery}.
+     */
+    private ParsedQuery parseQuery(final String query) {
+
+        if(query.equalsIgnoreCase("*:*")) {
+            return PING;
+        } else if(query.startsWith("id:(")) {
+            return queries.get(query, key -> new ParsedQuery(QueryType.MULTI_ID, Collections.unmodifiableList(DocumentIdParser.parse(key))));
+        } else if(query.startsWith("id:")) {
+            return new ParsedQuery(QueryType.SINGLE_ID, Collections.singletonList(query.substring(3).trim()));
+        } else {
+            return SEARCH;
+        }
+
+    }
+
+    /**
+     * Parses a <code>sort</code> parameter, e.g. <code>score desc, id asc</code>.
+     * @param sortSpec The parameter value.
+     * @return The {@link SortClause sort clauses}.
+     * @throws InvalidSolrRequestException If a clause isn't a field followed by <code>asc</code> or <code>desc</code>.
+     */
+    private static List<SortClause> parseSort(final String sortSpec) {
+
+        final String[] clauses = SORT_CLAUSES.split(sortSpec.trim());
+        final List<SortClause> sort = new ArrayList<>(clauses.length);
+
+        for(final String clause : clauses) {
+
+            final String[] parts = SORT_CLAUSE.split(clause);
+
+            if(parts.length != 2) {
+                throw new InvalidSolrRequestException("Can't determine a sort order (asc or desc) in sort spec: " + sortSpec);
+            }
+
+            final String direction = parts[1].toLowerCase(Locale.ROOT);
+
+            if(!direction.equals("asc") && !direction.equals("desc")) {
+                throw new InvalidSolrRequestException("Can't determine a sort order (asc or desc) in sort spec: " + sortSpec);
+            }
+
+            sort.add(new SortClause(parts[0], direction.equals("asc")));
+
+        }
+
+        return Collections.unmodifiableList(sort);
+
+    }
+
+    /**
+     * Gets the first value of a parameter.
+     * @param parameters The request parameters.
+     * @param name The parameter name.
+     * @return The value, or <code>null</code> if the parameter isn't there.
+     */
+    private static String getFirst(final Map<String, String[]> parameters, final String name) {
+
+        final String[] values = parameters.get(name);
+
+        return values == null || values.length == 0 ? null : values[0];
+
+    }
+
+    /**
+     * Gets a parameter that is a number of documents, which can't be negative.
+     * @param parameters The request parameters.
+     * @param name The parameter name.
+     * @param defaultValue The value when the parameter isn't there.
+     * @return The value.
+     * @throws InvalidSolrRequestException If the value isn't a number or is negative.
+     */
+    private static int getInt(final Map<String, String[]> parameters, final String name, final int defaultValue) {
+
+        final String value = getFirst(parameters, name);
+
+        if(value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+
+        final int number;
+
+        try {
+            number = Integer.parseInt(value.trim());
+        } catch (NumberFormatException ex) {
+            throw new InvalidSolrRequestException("Invalid " + name + ": " + value);
+        }
+
+        if(number < 0) {
+            throw new InvalidSolrRequestException("'" + name + "' parameter cannot be negative");
+        }
+
+        return number;
+
+    }
+
+    /**
+     * Gets a parameter that is a flag. Like Solr, <code>true</code>, <code>on</code> and <code>yes</code> turn it on.
+     * @param parameters The request parameters.
+     * @param name The parameter name.
+     * @return The value, <code>false</code> if the parameter isn't there.
+     */
+    private static boolean getBoolean(final Map<String, String[]> parameters, final String name) {
+
+        final String value = getFirst(parameters, name);
+
+        return value != null && (value.equalsIgnoreCase("true") || value.equalsIgnoreCase("on") || value.equalsIgnoreCase("yes"));
+
+    }
+
+    /**
+     * The query type and document IDs of a query.
+     */
+    private static final class ParsedQuery {
+
+        private final QueryType queryType;
+        private final List<String> documentIds;
+
+        private ParsedQuery(final QueryType queryType, final List<String> documentIds) {
+
+            this.queryType = queryType;
+            this.documentIds = documentIds;
+
+        }
+
+    }
+
+}
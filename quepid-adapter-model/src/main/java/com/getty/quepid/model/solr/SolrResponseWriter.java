@@ -0,0 +1,86 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.model.solr;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes a {@link SolrResponse} as JSON straight to an output stream, wrapped in the
+ * <code>json.wrf</code> callback when there is one, without building the JSON as a String first.
+ */
+public class SolrResponseWriter {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final String INDENT = "  ";
+
+    private final Gson gson;
+
+    public SolrResponseWriter(Gson gson) {
+        this.gson = gson;
+    }
+
+    /**
+     * Writes the response. The output stream is flushed but not closed.
+     * @param solrResponse The {@link SolrResponse}.
+     * @param jsonWrf The json.wrf parameter value or <code>null</code>.
+     * @param indent Whether to pretty-print the JSON.
+     * @param outputStream The stream to write to.
+     */
+    public void write(final SolrResponse solrResponse, final String jsonWrf, final boolean indent,
+                      final OutputStream outputStream) throws IOException {
+
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+        final boolean wrapped = jsonWrf != null && !jsonWrf.isEmpty();
+
+        if(wrapped) {
+            writer.write(jsonWrf);
+            writer.write('(');
+        }
+
+        final JsonWriter jsonWriter = gson.newJsonWriter(writer);
+
+        if(indent) {
+            jsonWriter.setIndent(INDENT);
+        }
+
+        gson.toJson(solrResponse, SolrResponse.class, jsonWriter);
+        jsonWriter.flush();
+
+        if(wrapped) {
+            writer.write(')');
+        }
+
+        writer.flush();
+
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.model.search;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnippetsTest {
+
+    @Test
+    void leavesShortTextAlone() {
+
+        final String text = "a short description";
+
+        assertSame(text, Snippets.truncate(text, 100));
+        assertSame(text, Snippets.truncate(text, text.length()));
+        assertSame(text, Snippets.truncate(text, 0));
+        assertNull(Snippets.truncate(null, 10));
+
+    }
+
+    @Test
+    void endsAtTheLastWordBoundary() {
+
+        assertEquals("first second...", Snippets.truncate("first second third", 15));
+        assertEquals("first...", Snippets.truncate("first second third", 14));
+        assertEquals("fir...", Snippets.truncate("first second", 6));
+
+    }
+
+    @Test
+    void cutsAtABoundaryHalfwayThrough() {
+
+        // The only whitespace is at maxLength / 2.
+        assertEquals("abcde...", Snippets.truncate("abcde fghijklmnop", 13));
+
+    }
+
+    @Test
+    void cutsTheWordWithoutABoundaryInTheSecondHalf() {
+
+        assertEquals("ab cdefghi...", Snippets.truncate("ab cdefghijklmnop", 13));
+        assertEquals("abcdefghij...", Snippets.truncate("abcdefghijklmnop", 13));
+
+    }
+
+    @Test
+    void cutsWithoutAnEllipsisBelowItsLength() {
+
+        assertEquals("abc", Snippets.truncate("abcdef", 3));
+        assertEquals("a", Snippets.truncate("abcdef", 1));
+
+    }
+
+    @Test
+    void neverGoesOverTheMaxLength() {
+
+        final String text = "a patent description with some words, a verylongwordwithoutanyspaces and an end";
+
+        for(int maxLength = 1; maxLength <= text.length(); maxLength++) {
+
+            final String snippet = Snippets.truncate(text, maxLength);
+
+            assertTrue(snippet.length() <= maxLength, "\"" + snippet + "\" is longer than " + maxLength);
+
+        }
+
+    }
+
+}
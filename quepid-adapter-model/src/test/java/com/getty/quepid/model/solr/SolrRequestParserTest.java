@@ -0,0 +1,150 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.model.solr;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SolrRequestParserTest {
+
+    private final SolrRequestParser parser = new SolrRequestParser(100, 500);
+
+    @Test
+    void parsesTheQueryTypes() {
+
+        assertEquals(QueryType.PING, parser.parse(parameters("q", "*:*")).getQueryType());
+        assertEquals(QueryType.SEARCH, parser.parse(parameters("q", "wireless charging")).getQueryType());
+
+        final SolrRequest single = parser.parse(parameters("q", "id: 10000000"));
+
+        assertEquals(QueryType.SINGLE_ID, single.getQueryType());
+        assertEquals(Collections.singletonList("10000000"), single.getDocumentIds());
+
+        final SolrRequest multi = parser.parse(parameters("q", "id:(10000000 OR 10000001 OR 10000002)"));
+
+        assertEquals(QueryType.MULTI_ID, multi.getQueryType());
+        assertEquals(Arrays.asList("10000000", "10000001", "10000002"), multi.getDocumentIds());
+
+    }
+
+    @Test
+    void parsesTheOtherParameters() {
+
+        final Map<String, String[]> parameters = parameters("q", "wireless charging", "start", "20", "rows", "50",
+                "fl", "id,title", "sort", "score desc, id asc", "indent", "on", "debugQuery", "true", "json.wrf", "callback");
+        parameters.put("fq", new String[] { "a:b", "c:d" });
+
+        final SolrRequest request = parser.parse(parameters);
+
+        assertEquals(20, request.getStart());
+        assertEquals(50, request.getRows());
+        assertTrue(request.getFields().includesId());
+        assertTrue(request.getFields().includesTitle());
+        assertFalse(request.getFields().includesDescription());
+        assertEquals(Arrays.asList(new SortClause("score", false), new SortClause("id", true)), request.getSort());
+        assertEquals(Arrays.asList("a:b", "c:d"), request.getFilterQueries());
+        assertTrue(request.isIndent());
+        assertTrue(request.isDebug());
+        assertEquals("callback", request.getJsonWrf());
+
+    }
+
+    @Test
+    void usesTheDefaults() {
+
+        final SolrRequest request = parser.parse(parameters("q", "wireless charging"));
+
+        assertEquals(0, request.getStart());
+        assertEquals(10, request.getRows());
+        assertSame(FieldList.ALL, request.getFields());
+        assertTrue(request.getSort().isEmpty());
+        assertFalse(request.isIndent());
+        assertFalse(request.isDebug());
+        assertEquals("", request.getJsonWrf());
+
+    }
+
+    @Test
+    void rejectsInvalidRequests() {
+
+        assertThrows(InvalidSolrRequestException.class, () -> parser.parse(parameters("wt", "json")));
+        assertThrows(InvalidSolrRequestException.class, () -> parser.parse(parameters("q", "*:*", "wt", "xml")));
+        assertThrows(InvalidSolrRequestException.class, () -> parser.parse(parameters("q", "*:*", "rows", "ten")));
+        assertThrows(InvalidSolrRequestException.class, () -> parser.parse(parameters("q", "*:*", "start", "-1")));
+        assertThrows(InvalidSolrRequestException.class, () -> parser.parse(parameters("q", "*:*", "sort", "score")));
+        assertThrows(InvalidSolrRequestException.class, () -> parser.parse(parameters("q", "*:*", "sort", "score up")));
+
+    }
+
+    @Test
+    void capsTheRows() {
+
+        assertEquals(500, parser.parse(parameters("q", "*:*", "rows", "500")).getRows());
+
+        assertThrows(InvalidSolrRequestException.class, () -> parser.parse(parameters("q", "*:*", "rows", "501")));
+        assertThrows(InvalidSolrRequestException.class, () -> parser.parse(parameters("q", "*:*", "rows", "2147483647")));
+
+        // The default rows don't go over the cap either.
+        assertEquals(5, new SolrRequestParser(100, 5).parse(parameters("q", "*:*")).getRows());
+
+    }
+
+    @Test
+    void rejectsPagesThatOverflow() {
+
+        assertEquals(2147483147, parser.parse(parameters("q", "*:*", "start", "2147483147", "rows", "500")).getStart());
+
+        assertThrows(InvalidSolrRequestException.class,
+                () -> parser.parse(parameters("q", "*:*", "start", "2147483148", "rows", "500")));
+
+    }
+
+    /**
+     * Creates request parameters, as a servlet request has them.
+     * @param namesAndValues The parameter names, each followed by its value.
+     * @return The parameters.
+     */
+    private static Map<String, String[]> parameters(final String... namesAndValues) {
+
+        final Map<String, String[]> parameters = new HashMap<>();
+
+        for(int i = 0; i < namesAndValues.length; i += 2) {
+            parameters.put(namesAndValues[i], new String[] { namesAndValues[i + 1] });
+        }
+
+        return parameters;
+
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid;
+
+import com.getty.quepid.model.search.Futures;
+import com.getty.quepid.uspto.evaluation.CaseEvaluator;
+import com.getty.quepid.uspto.evaluation.EvaluationSummary;
+import com.getty.quepid.uspto.evaluation.Judgments;
+import com.google.gson.Gson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Evaluates a case from the command line, without starting the web server:
+ * <pre>
+ * java -jar quepid-adapter.jar evaluate case-ratings.csv results.ndjson --quepid.evaluation.k=10
+ * </pre>
+ * The metrics of each query are written to the results file as newline-delimited JSON as its search completes,
+ * followed by a line with the metrics averaged over the case.
+ */
+@Component
+public class EvaluateCommand implements ApplicationRunner {
+
+    static final String NAME = "evaluate";
+
+    private final Logger LOGGER = LoggerFactory.getLogger(EvaluateCommand.class);
+
+    @Autowired
+    private CaseEvaluator caseEvaluator;
+
+    @Autowired
+    private Gson gson;
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+
+        final List<String> arguments = args.getNonOptionArgs();
+
+        if(arguments.isEmpty() || !arguments.get(0).equals(NAME)) {
+            return;
+        }
+
+        if(arguments.size() != 3) {
+            throw new IllegalArgumentException("Usage: evaluate <judgments.csv> <results.ndjson>");
+        }
+
+        final Judgments judgments;
+
+        try (Reader reader = Files.newBufferedReader(Paths.get(arguments.get(1)), StandardCharsets.UTF_8)) {
+            judgments = Judgments.read(reader);
+        }
+
+        try (Writer writer = Files.newBufferedWriter(Paths.get(arguments.get(2)), StandardCharsets.UTF_8)) {
+
+            final EvaluationSummary summary = Futures.await(caseEvaluator.evaluate(judgments, caseEvaluator.getDefaultK(),
+                    evaluation -> writeLine(writer, evaluation)));
+
+            writeLine(writer, summary);
+
+            LOGGER.info("Wrote the evaluation of {} queries to {}", summary.getQueries(), arguments.get(2));
+
+        }
+
+    }
+
+    /**
+     * Writes one line of the results, flushed so the results can be followed as they come in.
+     * @param writer The results {@link Writer}.
+     * @param line The object to write as a line of JSON.
+     */
+    private void writeLine(final Writer writer, final Object line) {
+
+        try {
+
+            synchronized (writer) {
+                writer.write(gson.toJson(line));
+                writer.write('\n');
+                writer.flush();
+            }
+
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+    }
+
+}
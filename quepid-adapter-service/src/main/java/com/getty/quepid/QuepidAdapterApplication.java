@@ -23,24 +23,67 @@ SOFTWARE.
 
 package com.getty.quepid;
 
+import com.getty.quepid.model.search.VirtualThreads;
+import com.getty.quepid.model.solr.SolrRequestParser;
+import com.getty.quepid.model.solr.SolrResponseWriter;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
 import org.springframework.context.annotation.Bean;
 
 @SpringBootApplication
 public class QuepidAdapterApplication {
 
 	public static void main(String[] args){
+
+		if(args.length > 0 && args[0].equals(EvaluateCommand.NAME)) {
+
+			// Evaluate a case and exit, without the web server.
+			System.exit(SpringApplication.exit(new SpringApplicationBuilder(QuepidAdapterApplication.class)
+					.web(WebApplicationType.NONE)
+					.run(args)));
+
+		}
+
 		SpringApplication.run(QuepidAdapterApplication.class, args);
+
 	}
 
 	@Bean
 	public Gson gson() {
 
-		// Defining this here to enable JSON pretty printing.
-		return new GsonBuilder().setPrettyPrinting().create();
+		// Responses are compact by default. Pretty printing is turned on per request with the indent parameter.
+		return new GsonBuilder().create();
+
+	}
+
+	@Bean
+	public SolrResponseWriter solrResponseWriter(Gson gson) {
+
+		return new SolrResponseWriter(gson);
+
+	}
+
+	@Bean
+	public SolrRequestParser solrRequestParser(@Value("${quepid.parse-cache.max-size:10000}") long maxCacheSize,
+											   @Value("${quepid.max-rows:1000}") int maxRows) {
+
+		return new SolrRequestParser(maxCacheSize, maxRows);
+
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "quepid.virtual-threads", havingValue = "true")
+	public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+
+		// Handle every servlet request on its own virtual thread instead of Tomcat's worker pool.
+		return protocolHandler -> protocolHandler.setExecutor(VirtualThreads.newExecutor("tomcat-"));
 
 	}
 
@@ -0,0 +1,124 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.controllers;
+
+import com.getty.quepid.uspto.evaluation.CaseEvaluator;
+import com.getty.quepid.uspto.evaluation.EvaluationSummary;
+import com.getty.quepid.uspto.evaluation.Judgments;
+import com.google.gson.Gson;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Admin endpoint for evaluating a case in one go.
+ * POST a Quepid case export (the ratings CSV) and the metrics of each query are streamed back as newline-delimited
+ * JSON as its search completes, followed by a line with the metrics averaged over the case. Pass <code>k</code>
+ * to score more or fewer results than <code>quepid.evaluation.k</code>.
+ */
+@RestController
+@RequestMapping("/admin/evaluate")
+public class EvaluationController {
+
+    private static final MediaType NDJSON = new MediaType("application", "x-ndjson", StandardCharsets.UTF_8);
+
+    @Autowired
+    private CaseEvaluator caseEvaluator;
+
+    @Autowired
+    private Gson gson;
+
+    @RequestMapping(method = RequestMethod.POST, consumes = {"text/plain", "text/csv"})
+    public ResponseEntity<ResponseBodyEmitter> evaluate(@RequestBody String body,
+                                                        @RequestParam(value = "k", required = false) Integer k) throws IOException {
+
+        final Judgments judgments = Judgments.read(new StringReader(body));
+
+        // An evaluation can take minutes, so the response isn't timed out.
+        final ResponseBodyEmitter emitter = new ResponseBodyEmitter(0L);
+
+        final CompletableFuture<EvaluationSummary> summary = caseEvaluator.evaluate(judgments,
+                k == null ? caseEvaluator.getDefaultK() : k, evaluation -> send(emitter, evaluation));
+
+        summary.whenComplete((result, ex) -> {
+
+            try {
+
+                if(result != null) {
+                    send(emitter, result);
+                }
+
+                emitter.complete();
+
+            } catch (UncheckedIOException sendEx) {
+                emitter.completeWithError(sendEx);
+            }
+
+        });
+
+        // Stop evaluating when the client goes away.
+        emitter.onError(ex -> summary.cancel(false));
+        emitter.onTimeout(() -> summary.cancel(false));
+
+        return ResponseEntity.ok().contentType(NDJSON).body(emitter);
+
+    }
+
+    /**
+     * Answers judgments that can't be evaluated, such as a CSV without a rating column, with a 400.
+     * @param ex The {@link IllegalArgumentException}.
+     * @return The {@link ResponseEntity}.
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> invalidJudgments(IllegalArgumentException ex) {
+
+        return ResponseEntity.badRequest().body(ex.getMessage());
+
+    }
+
+    /**
+     * Writes one line of the response.
+     * @param emitter The {@link ResponseBodyEmitter}.
+     * @param line The object to write as a line of JSON.
+     * @throws UncheckedIOException Thrown if the line can't be written, e.g. because the client has gone away.
+     */
+    private void send(final ResponseBodyEmitter emitter, final Object line) {
+
+        try {
+            emitter.send(gson.toJson(line) + "\n", NDJSON);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+    }
+
+}
@@ -23,25 +23,28 @@ SOFTWARE.
 
 package com.getty.quepid.controllers;
 
+import com.getty.quepid.model.search.AbstractSearchService;
 import com.getty.quepid.uspto.model.UsptoSearchRequest;
 import com.getty.quepid.uspto.model.UsptoSearchResponse;
-import com.getty.quepid.uspto.services.UsptoSearchService;
+import com.getty.quepid.uspto.resilience.UpstreamUnavailableException;
 import com.getty.quepid.model.solr.*;
-import com.google.gson.Gson;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 @CrossOrigin(origins = "*")
 @RestController
@@ -49,124 +52,175 @@ public class QuepidSearchAdapter {
 
     private final Logger LOGGER = LoggerFactory.getLogger(QuepidSearchAdapter.class);
 
+    // The USPTO API, or the local index when quepid.backend=lucene.
     @Autowired
-    private Gson gson;
+    private AbstractSearchService<UsptoSearchRequest, UsptoSearchResponse> searchService;
 
     @Autowired
-    private UsptoSearchService searchService;
+    private MeterRegistry meterRegistry;
 
+    @Autowired
+    private SolrRequestParser requestParser;
+
+    // Requests are handled asynchronously. The servlet thread is released while the USPTO API is called
+    // and the response is written when the call completes.
+    // The Solr parameters are parsed straight from the servlet's parameter map, see SolrRequestParser for the ones supported.
     @RequestMapping(value = "/search", method = RequestMethod.GET)
-    public ResponseEntity<String> search(@RequestParam(value = "q") String query,
-                                         @RequestParam(value = "json.wrf", defaultValue = "", required = false) String jsonWrf) throws Exception {
+    public CompletableFuture<ResponseEntity<SolrResponseBody>> search(HttpServletRequest request) {
+
+        final Timer.Sample sample = Timer.start(meterRegistry);
+        final SolrRequest solrRequest = requestParser.parse(request.getParameterMap());
+
+        final CompletableFuture<ResponseEntity<SolrResponseBody>> response = handle(solrRequest);
+
+        response.whenComplete((responseEntity, ex) -> sample.stop(Timer.builder("quepid.requests")
+                .description("Quepid requests by query type, up to the point the response is ready to be written.")
+                .tags("type", solrRequest.getQueryType().getTag(), "outcome", ex == null ? "success" : "error")
+                .register(meterRegistry)));
+
+        return response;
+
+    }
+
+    /**
+     * Fails fast with a 503 when the USPTO API isn't being called because it is unhealthy or overloaded.
+     * @param ex The {@link UpstreamUnavailableException}.
+     * @return The {@link ResponseEntity}.
+     */
+    @ExceptionHandler(UpstreamUnavailableException.class)
+    public ResponseEntity<String> upstreamUnavailable(UpstreamUnavailableException ex) {
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header("Retry-After", "1")
+                .body(ex.getMessage());
+
+    }
+
+    /**
+     * Answers a request with parameters Solr would reject with a 400.
+     * @param ex The {@link InvalidSolrRequestException}.
+     * @return The {@link ResponseEntity}.
+     */
+    @ExceptionHandler(InvalidSolrRequestException.class)
+    public ResponseEntity<String> invalidRequest(InvalidSolrRequestException ex) {
+
+        return ResponseEntity.badRequest().body(ex.getMessage());
 
-        final HttpHeaders httpResponseHeaders = getSolrHeaders(jsonWrf);
+    }
+
+    /**
+     * Handles a Quepid request.
+     * @param solrRequest The {@link SolrRequest}.
+     * @return The {@link ResponseEntity}, once it is ready.
+     */
+    private CompletableFuture<ResponseEntity<SolrResponseBody>> handle(final SolrRequest solrRequest) {
+
+        final String query = solrRequest.getQuery();
+        final HttpHeaders httpResponseHeaders = getSolrHeaders(solrRequest.getJsonWrf());
 
-        if(StringUtils.equalsIgnoreCase(query, "*:*")) {
+        if(solrRequest.getQueryType() == QueryType.PING) {
 
             // This is Quepid doing the initial ping.
             // We'll return an empty search list as a Solr response.
 
             final List<Doc> docs = Collections.emptyList();
-            final UsptoSearchResponse searchResponse = formSearchResponse(query, docs, 1);
+            final SolrResponse solrResponse = formSolrResponse(query, docs, 1);
 
-            return ResponseEntity.ok()
-                    .headers(httpResponseHeaders)
-                    .body(toTsonWrf(jsonWrf, searchResponse.getJson()));
+            return CompletableFuture.completedFuture(toResponseEntity(httpResponseHeaders, solrRequest, solrResponse));
 
-        } else if(query.startsWith("id:(")) {
+        } else if(solrRequest.getQueryType() == QueryType.MULTI_ID) {
 
             // This is Quepid doing a snapshot comparison.
             // Quepid needs to look up specific documents by ID.
-            // We need to parse the document IDs from the query so we can retrieve them.
+            // The parser has already pulled the document IDs out of the query.
             // q=id:(12697 OR 18645 OR 26965 OR 71714 OR 81899)
 
-            final Pattern pattern = Pattern.compile("[0-9]+");
-            final Matcher matcher = pattern.matcher(query);
+            final List<String> documentIds = solrRequest.getDocumentIds();
 
-            final List<String> documentIds = new LinkedList<>();
+            // Look up all of the documentIds as one batch.
+            // The QTime is the wall-clock time for the whole batch.
 
-            while (matcher.find()) {
-                documentIds.add(matcher.group());
-            }
+            final long startTime = System.nanoTime();
 
-            final List<Doc> docs = new LinkedList<>();
+            return searchService.getDocumentsAsync(documentIds).thenApply(docs -> {
 
-            // Do a search for those documentIds.
-            // TODO: Change this to a batch search if possible.
+                final long elapsedTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+                final SolrResponse solrResponse = formSolrResponse(query, docs, elapsedTime);
 
-            final long startTime = System.currentTimeMillis();
+                return toResponseEntity(httpResponseHeaders, solrRequest, solrResponse);
 
-            for (final String documentId : documentIds) {
+            });
 
-                final Doc doc = searchService.getDocument(documentId);
+        } else if(solrRequest.getQueryType() == QueryType.SINGLE_ID) {
 
-                if (doc != null) {
-                    docs.add(doc);
-                }
-
-            }
-
-            // This isn't a fair representation of time because it's over multiple queries
-            // but it is better than nothing.
-            final long elapsedTime = System.currentTimeMillis() - startTime;
-
-            final UsptoSearchResponse searchResponse = formSearchResponse(query, docs, elapsedTime);
+            // Quepid is wanting to show the details of a single document.
+            final String documentId = solrRequest.getDocumentIds().get(0);
 
-            return ResponseEntity.ok()
-                    .headers(httpResponseHeaders)
-                    .body(toTsonWrf(jsonWrf, searchResponse.getJson()));
+            final long startTime = System.nanoTime();
 
-        } else if(query.startsWith("id:")) {
+            return searchService.getDocumentAsync(documentId).thenApply(doc -> {
 
-            // Quepid is wanting to show the details of a single document.
-            final String documentId = query.replace("id:", "");
+                final long elapsedTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
 
-            final long startTime = System.currentTimeMillis();
-            final Doc doc = searchService.getDocument(documentId);
-            final long elapsedTime = System.currentTimeMillis() - startTime;
+                // Returning a single document.
+                final SolrResponse solrResponse = formSolrResponse(query, Arrays.asList(doc), elapsedTime);
 
-            // Returning a single document.
-            final UsptoSearchResponse searchResponse = formSearchResponse(query, Arrays.asList(doc), elapsedTime);
+                return toResponseEntity(httpResponseHeaders, solrRequest, solrResponse);
 
-            return ResponseEntity.ok()
-                    .headers(httpResponseHeaders)
-                    .body(toTsonWrf(jsonWrf, searchResponse.getJson()));
+            });
 
         } else {
 
             // This is Quepid doing a search.
 
-            LOGGER.info("Received search for: " + query);
-
+            // Only the page Quepid shows is asked for, rather than a fixed 100 results.
             final UsptoSearchRequest searchRequest = new UsptoSearchRequest(query);
-            final UsptoSearchResponse searchResponse = searchService.search(searchRequest);
+            searchRequest.setStart(solrRequest.getStart());
+            searchRequest.setRows(solrRequest.getRows());
+            searchRequest.setFields(solrRequest.getFields());
+
+            return searchService.searchAsync(searchRequest).thenApply(searchResponse -> {
+
+                LOGGER.debug("search q=\"{}\" numFound={} searchMs={}", query,
+                        searchResponse.getSolrResponse().getResponse().getNumFound(), searchResponse.getSearchTime());
+
+                return toResponseEntity(httpResponseHeaders, solrRequest, searchResponse.getSolrResponse());
 
-            return ResponseEntity.ok()
-                    .headers(httpResponseHeaders)
-                    .body(toTsonWrf(jsonWrf, searchResponse.getJson()));
+            });
 
         }
 
     }
 
     /**
-     * Wraps the json response if necessary.
-     * @param jsonWrf The jsonwrf parameter value.
-     * @param json The response json.
-     * @return The formatted json.
+     * Creates the HTTP response. The json response, wrapped if necessary, is written straight to the HTTP response.
+     * Only the requested fields are written.
+     * @param httpResponseHeaders The Solr {@link HttpHeaders}.
+     * @param solrRequest The {@link SolrRequest}.
+     * @param solrResponse The {@link SolrResponse}.
+     * @return The {@link ResponseEntity}.
      */
-    private String toTsonWrf(final String jsonWrf, final String json) {
+    private ResponseEntity<SolrResponseBody> toResponseEntity(final HttpHeaders httpResponseHeaders, final SolrRequest solrRequest,
+                                                              final SolrResponse solrResponse) {
 
-        if(StringUtils.isEmpty(jsonWrf)) {
+        final FieldList fields = solrRequest.getFields();
 
-            return json;
+        SolrResponse projectedResponse = solrResponse;
 
-        } else {
+        // The docs may be cached, so they're copied rather than having fields removed.
+        if(!fields.isAll()) {
+
+            final Response response = solrResponse.getResponse();
+            final List<Doc> docs = fields.project(response.getDocs());
 
-            return jsonWrf + "(" + json + ")";
+            projectedResponse = new SolrResponse(solrResponse.getResponseHeader(), new Response(docs, response.getNumFound(), response.getStart()));
 
         }
 
+        return ResponseEntity.ok()
+                .headers(httpResponseHeaders)
+                .body(new SolrResponseBody(projectedResponse, solrRequest.getJsonWrf(), solrRequest.isIndent()));
+
     }
 
     /**
@@ -174,19 +228,15 @@ public class QuepidSearchAdapter {
      * @param query The query.
      * @param docs The list of {@link Doc docs}.
      * @param qtime The time required for query execution.
-     * @return The search response.
+     * @return The {@link SolrResponse}.
      */
-    private UsptoSearchResponse formSearchResponse(final String query, final List<Doc> docs, final long qtime) {
+    private SolrResponse formSolrResponse(final String query, final List<Doc> docs, final long qtime) {
 
         final Params params = new Params(query);
         final ResponseHeader responseHeader = new ResponseHeader(0, qtime, params);
         final Response response = new Response(docs);
-        final SolrResponse solrResponse = new SolrResponse(responseHeader, response);
-
-        final UsptoSearchResponse searchResponse = new UsptoSearchResponse();
-        searchResponse.setJson(gson.toJson(solrResponse));
 
-        return searchResponse;
+        return new SolrResponse(responseHeader, response);
 
     }
 
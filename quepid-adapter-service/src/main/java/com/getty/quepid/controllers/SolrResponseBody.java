@@ -0,0 +1,56 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.controllers;
+
+import com.getty.quepid.model.solr.SolrResponse;
+
+/**
+ * The body of a Solr response along with the request parameters that control how it is written.
+ * {@link SolrResponseBodyConverter} writes it straight to the HTTP response.
+ */
+public class SolrResponseBody {
+
+    private final SolrResponse solrResponse;
+    private final String jsonWrf;
+    private final boolean indent;
+
+    public SolrResponseBody(SolrResponse solrResponse, String jsonWrf, boolean indent) {
+        this.solrResponse = solrResponse;
+        this.jsonWrf = jsonWrf;
+        this.indent = indent;
+    }
+
+    public SolrResponse getSolrResponse() {
+        return solrResponse;
+    }
+
+    public String getJsonWrf() {
+        return jsonWrf;
+    }
+
+    public boolean isIndent() {
+        return indent;
+    }
+
+}
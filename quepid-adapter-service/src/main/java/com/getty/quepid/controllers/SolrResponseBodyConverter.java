@@ -0,0 +1,105 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.controllers;
+
+import com.getty.quepid.model.solr.SolrResponseWriter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes a {@link SolrResponseBody} as JSON, or JSONP when there is a json.wrf callback, directly to the
+ * HTTP response body. This runs on the thread that completes the request, so async responses don't need
+ * another hand-off to a separate executor the way a {@link org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody} does.
+ */
+@Component
+public class SolrResponseBodyConverter extends AbstractHttpMessageConverter<SolrResponseBody> {
+
+    private final SolrResponseWriter solrResponseWriter;
+    private final Timer serializationTimer;
+    private final DistributionSummary responseBytes;
+
+    public SolrResponseBodyConverter(SolrResponseWriter solrResponseWriter, MeterRegistry meterRegistry) {
+
+        super(MediaType.APPLICATION_JSON, new MediaType("text", "javascript"), MediaType.ALL);
+        this.solrResponseWriter = solrResponseWriter;
+
+        // The JSON is streamed to the client, so serialization time includes writing it out.
+        this.serializationTimer = Timer.builder("quepid.serialization")
+                .description("Writing Solr responses as JSON to the HTTP response.")
+                .register(meterRegistry);
+
+        // Counted before compression.
+        this.responseBytes = DistributionSummary.builder("quepid.response.size")
+                .description("The size of Solr responses before compression.")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+
+        return SolrResponseBody.class.isAssignableFrom(clazz);
+
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+
+        return false;
+
+    }
+
+    @Override
+    protected SolrResponseBody readInternal(Class<? extends SolrResponseBody> clazz, HttpInputMessage inputMessage) {
+
+        throw new HttpMessageNotReadableException("Solr responses can't be read", inputMessage);
+
+    }
+
+    @Override
+    protected void writeInternal(SolrResponseBody body, HttpOutputMessage outputMessage) throws IOException {
+
+        final CountingOutputStream outputStream = new CountingOutputStream(outputMessage.getBody());
+        final long startTime = System.nanoTime();
+
+        solrResponseWriter.write(body.getSolrResponse(), body.getJsonWrf(), body.isIndent(), outputStream);
+
+        serializationTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+        responseBytes.record(outputStream.getByteCount());
+
+    }
+
+}
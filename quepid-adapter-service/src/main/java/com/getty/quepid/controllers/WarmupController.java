@@ -0,0 +1,76 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.controllers;
+
+import com.getty.quepid.uspto.warmup.CacheWarmer;
+import com.getty.quepid.uspto.warmup.WarmupPlan;
+import com.getty.quepid.uspto.warmup.WarmupStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+/**
+ * Admin endpoint for warming the caches before a rating session.
+ * POST a Quepid case export (the ratings CSV) or a plain query list, one query per line, to start a warm-up
+ * and GET to follow its progress.
+ */
+@RestController
+@RequestMapping("/admin/warmup")
+public class WarmupController {
+
+    @Autowired
+    private CacheWarmer cacheWarmer;
+
+    @RequestMapping(method = RequestMethod.POST, consumes = {"text/plain", "text/csv"})
+    public ResponseEntity<WarmupStatus> start(@RequestBody String body) throws IOException {
+
+        final WarmupPlan plan = WarmupPlan.read(new StringReader(body));
+
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(cacheWarmer.start(plan));
+        } catch (IllegalStateException ex) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(cacheWarmer.getStatus());
+        }
+
+    }
+
+    @RequestMapping(method = RequestMethod.GET)
+    public WarmupStatus status() {
+
+        return cacheWarmer.getStatus();
+
+    }
+
+    @RequestMapping(method = RequestMethod.DELETE)
+    public WarmupStatus cancel() {
+
+        return cacheWarmer.cancel();
+
+    }
+
+}
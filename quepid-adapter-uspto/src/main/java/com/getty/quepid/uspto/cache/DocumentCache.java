@@ -0,0 +1,182 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.uspto.cache;
+
+import com.getty.quepid.model.solr.Doc;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * In-process cache of {@link Doc docs} keyed by patent number.
+ * The cache is bounded by the approximate number of bytes held by the cached docs
+ * rather than by the number of entries because patent descriptions vary a lot in size.
+ */
+@Component
+@ConditionalOnProperty(name = "quepid.backend", havingValue = "uspto", matchIfMissing = true)
+public class DocumentCache {
+
+    // Rough size of a Doc, its Strings and the cache entry before counting any characters.
+    private static final int ENTRY_OVERHEAD_BYTES = 200;
+
+    private final Cache<String, Entry> cache;
+
+    public DocumentCache(@Value("${uspto.document-cache.max-weight-bytes:67108864}") long maxWeightBytes,
+                         @Value("${uspto.document-cache.ttl:1h}") Duration ttl,
+                         @Value("${uspto.document-cache.not-found-ttl:5m}") Duration notFoundTtl) {
+
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((String patentNumber, Entry entry) -> entry.weight)
+                .expireAfter(new EntryExpiry(ttl, notFoundTtl))
+                .recordStats()
+                .build();
+
+    }
+
+    /**
+     * Gets a cached doc.
+     * @param patentNumber The patent number.
+     * @return The cached {@link Doc} or <code>null</code> if it is not cached.
+     */
+    public Doc get(final String patentNumber) {
+
+        final Entry entry = cache.getIfPresent(patentNumber);
+
+        return entry == null ? null : entry.doc;
+
+    }
+
+    /**
+     * Caches a doc for a patent that exists.
+     * @param doc The {@link Doc}.
+     */
+    public void put(final Doc doc) {
+
+        cache.put(doc.getId(), new Entry(doc, false));
+
+    }
+
+    /**
+     * Caches the doc returned for a patent number that doesn't exist.
+     * These are kept for a shorter time in case the patent shows up later.
+     * @param doc The "not found" {@link Doc}.
+     */
+    public void putNotFound(final Doc doc) {
+
+        cache.put(doc.getId(), new Entry(doc, true));
+
+    }
+
+    /**
+     * Gets the hit, miss and eviction counters for the cache.
+     * @return The {@link CacheStats}.
+     */
+    public CacheStats getStats() {
+
+        return cache.stats();
+
+    }
+
+    /**
+     * Gets the approximate number of bytes currently held by the cache.
+     * @return The total weight of the cached entries.
+     */
+    public long getWeightBytes() {
+
+        return cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+
+    }
+
+    /**
+     * Estimates the bytes held by a doc. This is shared with the {@link SearchCache}.
+     * @param doc The {@link Doc}.
+     * @return The approximate number of bytes.
+     */
+    static int weigh(final Doc doc) {
+
+        // Java Strings take up to two bytes per character.
+        final long chars = length(doc.getId()) + length(doc.getTitle()) + length(doc.getDescription())
+                + length(doc.getLink()) + length(doc.getImage());
+
+        return (int) Math.min(Integer.MAX_VALUE, ENTRY_OVERHEAD_BYTES + 2 * chars);
+
+    }
+
+    private static long length(final String value) {
+
+        return value == null ? 0 : value.length();
+
+    }
+
+    private static final class Entry {
+
+        private final Doc doc;
+        private final boolean notFound;
+        private final int weight;
+
+        private Entry(final Doc doc, final boolean notFound) {
+            this.doc = doc;
+            this.notFound = notFound;
+            this.weight = weigh(doc);
+        }
+
+    }
+
+    private static final class EntryExpiry implements Expiry<String, Entry> {
+
+        private final long ttlNanos;
+        private final long notFoundTtlNanos;
+
+        private EntryExpiry(final Duration ttl, final Duration notFoundTtl) {
+            this.ttlNanos = ttl.toNanos();
+            this.notFoundTtlNanos = notFoundTtl.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(String patentNumber, Entry entry, long currentTime) {
+            return entry.notFound ? notFoundTtlNanos : ttlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String patentNumber, Entry entry, long currentTime, long currentDuration) {
+            return expireAfterCreate(patentNumber, entry, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String patentNumber, Entry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.uspto.cache;
+
+import com.getty.quepid.model.solr.Doc;
+import com.getty.quepid.model.solr.FieldList;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+
+/**
+ * Shares one {@link Doc} between all the cached search results that include the same patent.
+ * The queries in a Quepid case overlap a lot, so the same patents turn up in many cached results.
+ * Docs are only held weakly, so one is forgotten once no cached result uses it.
+ */
+@Component
+@ConditionalOnProperty(name = "quepid.backend", havingValue = "uspto", matchIfMissing = true)
+public class DocumentInterner {
+
+    private final Cache<Key, Doc> docs = Caffeine.newBuilder()
+            .weakValues()
+            .build();
+
+    /**
+     * Gets the shared doc for a patent, or makes this doc the shared one.
+     * Docs read with different fields are kept apart. A doc whose content differs from the shared one, such as one
+     * from a refreshed search, replaces it, so the results cached from now on share the new content. Results cached
+     * earlier keep the old doc until they are refreshed too.
+     * @param fields The {@link FieldList} the doc was read with.
+     * @param doc The {@link Doc}.
+     * @return The shared {@link Doc}.
+     */
+    public Doc intern(final FieldList fields, final Doc doc) {
+
+        return docs.asMap().compute(new Key(doc.getId(), fields), (key, shared) -> shared != null && sameContent(shared, doc) ? shared : doc);
+
+    }
+
+    /**
+     * Gets the approximate number of shared docs, including some that may already be unused.
+     * @return The number of docs.
+     */
+    public long getSize() {
+
+        return docs.estimatedSize();
+
+    }
+
+    /**
+     * Checks whether two docs for the same patent have the same content.
+     * @param a A {@link Doc}.
+     * @param b Another {@link Doc}.
+     * @return <code>true</code> if every field is the same.
+     */
+    private static boolean sameContent(final Doc a, final Doc b) {
+
+        return Objects.equals(a.getTitle(), b.getTitle())
+                && Objects.equals(a.getDescription(), b.getDescription())
+                && Objects.equals(a.getLink(), b.getLink())
+                && Objects.equals(a.getImage(), b.getImage());
+
+    }
+
+    private static final class Key {
+
+        private final String patentNumber;
+        private final FieldList fields;
+
+        private Key(final String patentNumber, final FieldList fields) {
+
+            this.patentNumber = patentNumber;
+            this.fields = fields;
+
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key that = (Key) o;
+            return Objects.equals(patentNumber, that.patentNumber) && fields.equals(that.fields);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(patentNumber, fields);
+        }
+
+    }
+
+}
@@ -0,0 +1,558 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.uspto.cache;
+
+import com.getty.quepid.model.solr.Doc;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Optional on-disk store of {@link Doc docs} so the adapter doesn't start cold after a restart.
+ * <p>
+ * Docs are appended to a single segment file. Each record is a header of three lengths
+ * (id, title, description) followed by the UTF-8 bytes of each value; a length of -1 means <code>null</code>.
+ * The index of patent number to record offset is kept in memory and rebuilt from the record headers on startup.
+ * When the segment grows past the size cap it is compacted in the background: superseded records are dropped and,
+ * if that isn't enough, the oldest records are dropped too. Gets are served from the old segment while it is copied,
+ * and puts are skipped until the compacted segment replaces it (the docs are still in the in-memory cache).
+ */
+@Component
+@ConditionalOnProperty(name = "quepid.backend", havingValue = "uspto", matchIfMissing = true)
+public class DocumentStore {
+
+    private final Logger LOGGER = LoggerFactory.getLogger(DocumentStore.class);
+
+    private static final String SEGMENT_FILE = "documents.seg";
+    private static final int HEADER_BYTES = 12;
+
+    // Compaction keeps at most this fraction of the size cap so it doesn't run again straight away.
+    private static final double COMPACTION_TARGET = 0.75;
+
+    private final boolean enabled;
+    private final Path segmentPath;
+    private final long maxSizeBytes;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Long> index = new HashMap<>();
+
+    private final ExecutorService compactor;
+
+    private FileChannel channel;
+    private long size;
+    private boolean compacting;
+
+    public DocumentStore(@Value("${uspto.document-store.enabled:false}") boolean enabled,
+                         @Value("${uspto.document-store.path:document-store}") String path,
+                         @Value("${uspto.document-store.max-size-bytes:1073741824}") long maxSizeBytes) throws IOException {
+
+        this.enabled = enabled;
+        this.segmentPath = Paths.get(path, SEGMENT_FILE);
+        this.maxSizeBytes = maxSizeBytes;
+
+        this.compactor = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "document-store-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        if(enabled) {
+
+            Files.createDirectories(segmentPath.getParent());
+            open();
+
+            LOGGER.info("Opened document store {} with {} documents ({} bytes)", segmentPath, index.size(), size);
+
+        }
+
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+
+        // Not shutdownNow: interrupting a thread in the middle of a channel read closes the channel.
+        compactor.shutdown();
+
+        lock.writeLock().lock();
+
+        try {
+
+            if(channel != null) {
+                channel.close();
+                channel = null;
+            }
+
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+    }
+
+    /**
+     * Gets a stored doc.
+     * @param patentNumber The patent number.
+     * @return The stored {@link Doc} or <code>null</code> if it isn't stored.
+     */
+    public Doc get(final String patentNumber) {
+
+        if(!enabled) {
+            return null;
+        }
+
+        lock.readLock().lock();
+
+        try {
+
+            final Long offset = index.get(patentNumber);
+
+            return offset == null ? null : readDoc(channel, offset);
+
+        } catch (IOException ex) {
+
+            LOGGER.warn("Unable to read patent {} from the document store", patentNumber, ex);
+            return null;
+
+        } finally {
+            lock.readLock().unlock();
+        }
+
+    }
+
+    /**
+     * Stores the id, title and description of a doc.
+     * @param doc The {@link Doc}.
+     */
+    public void put(final Doc doc) {
+
+        if(!enabled) {
+            return;
+        }
+
+        final ByteBuffer record = toRecord(doc);
+
+        lock.writeLock().lock();
+
+        try {
+
+            // The store is full until the compaction finishes.
+            if(compacting || channel == null) {
+                return;
+            }
+
+            final long offset = size;
+            writeFully(channel, record, offset);
+
+            size += record.limit();
+            index.put(doc.getId(), offset);
+
+            if(size > maxSizeBytes) {
+                startCompaction();
+            }
+
+        } catch (IOException ex) {
+
+            LOGGER.warn("Unable to write patent {} to the document store", doc.getId(), ex);
+
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+    }
+
+    /**
+     * Gets the number of docs in the store.
+     * @return The number of stored docs.
+     */
+    public int getDocumentCount() {
+
+        lock.readLock().lock();
+
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+
+    }
+
+    /**
+     * Gets the size of the segment file.
+     * @return The segment size in bytes.
+     */
+    public long getSizeBytes() {
+
+        lock.readLock().lock();
+
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+    }
+
+    /**
+     * Opens the segment file and rebuilds the index from the record headers.
+     * A partially written record at the end of the file (from a crash mid-write) is truncated away.
+     */
+    private void open() throws IOException {
+
+        channel = FileChannel.open(segmentPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        final long fileSize = channel.size();
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+
+        long offset = 0;
+
+        while (offset + HEADER_BYTES <= fileSize) {
+
+            header.clear();
+            readFully(channel, header, offset);
+            header.flip();
+
+            final int idLength = header.getInt();
+            final int titleLength = header.getInt();
+            final int descriptionLength = header.getInt();
+            final long recordLength = (long) HEADER_BYTES + idLength + Math.max(0, titleLength) + Math.max(0, descriptionLength);
+
+            if(idLength <= 0 || offset + recordLength > fileSize) {
+                break;
+            }
+
+            final ByteBuffer id = ByteBuffer.allocate(idLength);
+            readFully(channel, id, offset + HEADER_BYTES);
+
+            index.put(new String(id.array(), StandardCharsets.UTF_8), offset);
+
+            offset += recordLength;
+
+        }
+
+        if(offset < fileSize) {
+            LOGGER.warn("Truncating {} bytes of incomplete records from {}", fileSize - offset, segmentPath);
+            channel.truncate(offset);
+        }
+
+        size = offset;
+
+    }
+
+    /**
+     * Starts compacting the segment in the background. Must be called with the write lock held.
+     */
+    private void startCompaction() {
+
+        compacting = true;
+
+        try {
+            compactor.execute(this::compact);
+        } catch (RejectedExecutionException ex) {
+            // The store is being closed.
+            compacting = false;
+        }
+
+    }
+
+    /**
+     * Rewrites the segment with only the latest record for each patent, dropping the oldest ones until the segment
+     * fits in the compaction target, and then swaps it in for the old one.
+     * <p>
+     * The records are copied without holding the lock, which is safe because puts are skipped while compacting.
+     * The new segment is opened before it is moved over the old one, so the old channel is only closed once the move
+     * has succeeded and a failed compaction leaves the store as it was.
+     */
+    private void compact() {
+
+        final Path compactedPath = segmentPath.resolveSibling(SEGMENT_FILE + ".compact");
+        FileChannel compacted = null;
+
+        try {
+
+            final FileChannel source;
+            final List<Map.Entry<String, Long>> entries = new ArrayList<>();
+
+            lock.readLock().lock();
+
+            try {
+
+                source = channel;
+
+                for (final Map.Entry<String, Long> entry : index.entrySet()) {
+                    entries.add(new AbstractMap.SimpleImmutableEntry<>(entry));
+                }
+
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            if(source == null) {
+                return;
+            }
+
+            // Newest records first so the oldest are the ones that get dropped.
+            entries.sort(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()));
+
+            final double targetBytes = maxSizeBytes * COMPACTION_TARGET;
+            final List<Map.Entry<String, Long>> kept = new ArrayList<>();
+            long keptBytes = 0;
+
+            for (final Map.Entry<String, Long> entry : entries) {
+
+                final long recordBytes = readRecordLength(source, entry.getValue());
+
+                if(keptBytes + recordBytes > targetBytes) {
+                    break;
+                }
+
+                kept.add(entry);
+                keptBytes += recordBytes;
+
+            }
+
+            compacted = FileChannel.open(compactedPath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+            final Map<String, Long> compactedIndex = new HashMap<>();
+            long offset = 0;
+
+            // Copy the records back oldest first to keep the segment in insertion order.
+            for (int i = kept.size() - 1; i >= 0; i--) {
+
+                final Map.Entry<String, Long> entry = kept.get(i);
+                final long recordBytes = readRecordLength(source, entry.getValue());
+
+                long copied = 0;
+
+                while (copied < recordBytes) {
+                    copied += source.transferTo(entry.getValue() + copied, recordBytes - copied, compacted);
+                }
+
+                compactedIndex.put(entry.getKey(), offset);
+                offset += recordBytes;
+
+            }
+
+            compacted.force(true);
+
+            lock.writeLock().lock();
+
+            try {
+
+                // The store was closed while the records were copied.
+                if(channel != source) {
+                    return;
+                }
+
+                Files.move(compactedPath, segmentPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+                LOGGER.info("Compacted document store from {} to {} bytes, keeping {} of {} documents",
+                        size, offset, compactedIndex.size(), index.size());
+
+                channel = compacted;
+                compacted = null;
+
+                index.clear();
+                index.putAll(compactedIndex);
+                size = offset;
+
+                closeQuietly(source);
+
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+        } catch (IOException | RuntimeException ex) {
+
+            LOGGER.warn("Unable to compact the document store {}", segmentPath, ex);
+
+        } finally {
+
+            if(compacted != null) {
+                closeQuietly(compacted);
+                deleteQuietly(compactedPath);
+            }
+
+            lock.writeLock().lock();
+
+            try {
+                compacting = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+        }
+
+    }
+
+    private void closeQuietly(final FileChannel fileChannel) {
+
+        try {
+            fileChannel.close();
+        } catch (IOException ex) {
+            LOGGER.debug("Unable to close a document store segment", ex);
+        }
+
+    }
+
+    private void deleteQuietly(final Path path) {
+
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ex) {
+            LOGGER.debug("Unable to delete {}", path, ex);
+        }
+
+    }
+
+    private static Doc readDoc(final FileChannel channel, final long offset) throws IOException {
+
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        readFully(channel, header, offset);
+        header.flip();
+
+        final int idLength = header.getInt();
+        final int titleLength = header.getInt();
+        final int descriptionLength = header.getInt();
+
+        final ByteBuffer body = ByteBuffer.allocate(idLength + Math.max(0, titleLength) + Math.max(0, descriptionLength));
+        readFully(channel, body, offset + HEADER_BYTES);
+
+        final byte[] bytes = body.array();
+
+        final Doc doc = new Doc(new String(bytes, 0, idLength, StandardCharsets.UTF_8));
+        doc.setTitle(toString(bytes, idLength, titleLength));
+        doc.setDescription(toString(bytes, idLength + Math.max(0, titleLength), descriptionLength));
+
+        return doc;
+
+    }
+
+    private static ByteBuffer toRecord(final Doc doc) {
+
+        final byte[] id = doc.getId().getBytes(StandardCharsets.UTF_8);
+        final byte[] title = toBytes(doc.getTitle());
+        final byte[] description = toBytes(doc.getDescription());
+
+        final ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + id.length + length(title) + length(description));
+
+        record.putInt(id.length);
+        record.putInt(title == null ? -1 : title.length);
+        record.putInt(description == null ? -1 : description.length);
+        record.put(id);
+
+        if(title != null) {
+            record.put(title);
+        }
+
+        if(description != null) {
+            record.put(description);
+        }
+
+        record.flip();
+
+        return record;
+
+    }
+
+    private static long readRecordLength(final FileChannel channel, final long offset) throws IOException {
+
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        readFully(channel, header, offset);
+        header.flip();
+
+        return (long) HEADER_BYTES + header.getInt() + Math.max(0, header.getInt()) + Math.max(0, header.getInt());
+
+    }
+
+    private static byte[] toBytes(final String value) {
+
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+
+    }
+
+    private static String toString(final byte[] bytes, final int offset, final int length) {
+
+        return length < 0 ? null : new String(bytes, offset, length, StandardCharsets.UTF_8);
+
+    }
+
+    private static int length(final byte[] bytes) {
+
+        return bytes == null ? 0 : bytes.length;
+
+    }
+
+    private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long offset) throws IOException {
+
+        long position = offset;
+
+        while (buffer.hasRemaining()) {
+
+            final int read = channel.read(buffer, position);
+
+            if(read < 0) {
+                throw new IOException("Unexpected end of document store at offset " + position);
+            }
+
+            position += read;
+
+        }
+
+    }
+
+    private static void writeFully(final FileChannel channel, final ByteBuffer buffer, final long offset) throws IOException {
+
+        long position = offset;
+
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+
+    }
+
+}
@@ -0,0 +1,197 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.uspto.cache;
+
+import com.getty.quepid.model.solr.Doc;
+import com.getty.quepid.model.solr.Response;
+import com.getty.quepid.uspto.model.UsptoSearchRequest;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * In-process cache of USPTO search results keyed by the normalized search request.
+ * Quepid re-runs every query in a case whenever it is reloaded, so most searches repeat.
+ * <p>
+ * The key includes the requested fields because results are read with only those fields.
+ * Results are kept as the parsed {@link Response} and expire after the TTL. Once a result is older than
+ * <code>refresh-after</code> it is stale: it is still served, but the caller should refresh it in the background
+ * (stale-while-revalidate). A stale result keeps being served until it expires if the refresh fails.
+ */
+@Component
+@ConditionalOnProperty(name = "quepid.backend", havingValue = "uspto", matchIfMissing = true)
+public class SearchCache {
+
+    // Rough size of a cache entry, its key and the Response before counting any docs.
+    private static final int ENTRY_OVERHEAD_BYTES = 300;
+
+    private final boolean enabled;
+    private final long refreshAfterNanos;
+    private final Cache<UsptoSearchRequest, Entry> cache;
+
+    public SearchCache(@Value("${uspto.search-cache.enabled:true}") boolean enabled,
+                       @Value("${uspto.search-cache.max-weight-bytes:67108864}") long maxWeightBytes,
+                       @Value("${uspto.search-cache.ttl:1h}") Duration ttl,
+                       @Value("${uspto.search-cache.refresh-after:10m}") Duration refreshAfter) {
+
+        this.enabled = enabled;
+        this.refreshAfterNanos = refreshAfter.toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((UsptoSearchRequest request, Entry entry) -> entry.weight)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+    }
+
+    /**
+     * Normalizes a search request so requests that differ only in whitespace share a cache entry.
+     * @param request The {@link UsptoSearchRequest}.
+     * @return The normalized {@link UsptoSearchRequest}.
+     */
+    public static UsptoSearchRequest normalize(final UsptoSearchRequest request) {
+
+        final String searchText = request.getSearchText() == null ? null : request.getSearchText().trim().replaceAll("\\s+", " ");
+
+        final UsptoSearchRequest normalized = new UsptoSearchRequest(searchText);
+        normalized.setStart(request.getStart());
+        normalized.setRows(request.getRows());
+        normalized.setLargeTextSearchFlag(request.getLargeTextSearchFlag());
+        normalized.setFields(request.getFields());
+
+        return normalized;
+
+    }
+
+    /**
+     * Gets a cached search result.
+     * @param request The normalized {@link UsptoSearchRequest}.
+     * @return The {@link CachedSearch} or <code>null</code> if the search is not cached.
+     */
+    public CachedSearch get(final UsptoSearchRequest request) {
+
+        if(!enabled) {
+            return null;
+        }
+
+        final Entry entry = cache.getIfPresent(request);
+
+        if(entry == null) {
+            return null;
+        }
+
+        return new CachedSearch(entry.response, System.nanoTime() - entry.writeTime >= refreshAfterNanos);
+
+    }
+
+    /**
+     * Caches a search result.
+     * @param request The normalized {@link UsptoSearchRequest}.
+     * @param response The {@link Response}.
+     */
+    public void put(final UsptoSearchRequest request, final Response response) {
+
+        if(enabled) {
+            cache.put(request, new Entry(response));
+        }
+
+    }
+
+    /**
+     * Gets the hit, miss and eviction counters for the cache.
+     * @return The {@link CacheStats}.
+     */
+    public CacheStats getStats() {
+
+        return cache.stats();
+
+    }
+
+    /**
+     * Gets the approximate number of bytes currently held by the cache.
+     * @return The total weight of the cached entries.
+     */
+    public long getWeightBytes() {
+
+        return cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+
+    }
+
+    /**
+     * A cached search result and whether it should be refreshed.
+     */
+    public static final class CachedSearch {
+
+        private final Response response;
+        private final boolean stale;
+
+        private CachedSearch(final Response response, final boolean stale) {
+
+            this.response = response;
+            this.stale = stale;
+
+        }
+
+        public Response getResponse() {
+            return response;
+        }
+
+        public boolean isStale() {
+            return stale;
+        }
+
+    }
+
+    private static final class Entry {
+
+        private final Response response;
+        private final long writeTime;
+        private final int weight;
+
+        private Entry(final Response response) {
+
+            this.response = response;
+            this.writeTime = System.nanoTime();
+
+            long weight = ENTRY_OVERHEAD_BYTES;
+
+            for(final Doc doc : response.getDocs()) {
+                weight += DocumentCache.weigh(doc);
+            }
+
+            this.weight = (int) Math.min(Integer.MAX_VALUE, weight);
+
+        }
+
+    }
+
+}
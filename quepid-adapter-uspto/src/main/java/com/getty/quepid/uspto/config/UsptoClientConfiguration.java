@@ -0,0 +1,123 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.uspto.config;
+
+import com.getty.quepid.model.search.VirtualThreads;
+import com.getty.quepid.uspto.logging.SampledLoggingInterceptor;
+import com.getty.quepid.uspto.services.UsptoService;
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The HTTP client for the USPTO API. A single client is shared by every call so its
+ * connections, dispatcher and response cache are shared too.
+ */
+@Configuration
+@ConditionalOnProperty(name = "quepid.backend", havingValue = "uspto", matchIfMissing = true)
+public class UsptoClientConfiguration {
+
+    private final Logger LOGGER = LoggerFactory.getLogger(UsptoClientConfiguration.class);
+
+    @Bean
+    public OkHttpClient usptoHttpClient(@Value("${uspto.max-requests:256}") int maxRequests,
+                                        @Value("${uspto.max-requests-per-host:64}") int maxRequestsPerHost,
+                                        @Value("${uspto.connection-pool.max-idle:64}") int maxIdleConnections,
+                                        @Value("${uspto.connection-pool.keep-alive:5m}") Duration keepAlive,
+                                        @Value("${uspto.connect-timeout:5s}") Duration connectTimeout,
+                                        @Value("${uspto.read-timeout:30s}") Duration readTimeout,
+                                        @Value("${uspto.http2.enabled:true}") boolean http2,
+                                        @Value("${uspto.http-cache.path:}") String httpCachePath,
+                                        @Value("${uspto.http-cache.max-size-bytes:52428800}") long httpCacheMaxSizeBytes,
+                                        @Value("${uspto.logging.level:BASIC}") SampledLoggingInterceptor.Level loggingLevel,
+                                        @Value("${uspto.logging.sample-rate:100}") int loggingSampleRate,
+                                        @Value("${uspto.logging.slow-threshold:2s}") Duration loggingSlowThreshold,
+                                        @Value("${uspto.logging.max-body-bytes:4096}") long loggingMaxBodyBytes,
+                                        @Value("${quepid.virtual-threads:false}") boolean virtualThreads) {
+
+        final OkHttpClient.Builder httpClient = new OkHttpClient.Builder();
+
+        httpClient.addInterceptor(new SampledLoggingInterceptor(loggingLevel, loggingSampleRate, loggingSlowThreshold, loggingMaxBodyBytes));
+
+        // Calls are enqueued rather than executed, so the dispatcher limits how many run at once.
+        // OkHttp still blocks a dispatcher thread for each call in flight, which is cheap when they're virtual threads.
+        final Dispatcher dispatcher = virtualThreads ? new Dispatcher(VirtualThreads.newExecutor("uspto-")) : new Dispatcher();
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+        httpClient.dispatcher(dispatcher);
+
+        // Keep enough idle connections around for a burst to reuse them instead of paying for new TLS handshakes.
+        httpClient.connectionPool(new ConnectionPool(maxIdleConnections, keepAlive.toMillis(), TimeUnit.MILLISECONDS));
+
+        httpClient.connectTimeout(connectTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        httpClient.readTimeout(readTimeout.toMillis(), TimeUnit.MILLISECONDS);
+
+        // HTTP/2 is negotiated with ALPN, so HTTP/1.1 is still used when the server doesn't offer it.
+        if(http2) {
+            httpClient.protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1));
+        } else {
+            httpClient.protocols(Collections.singletonList(Protocol.HTTP_1_1));
+        }
+
+        // Responses are only cached when the USPTO API's cache headers allow it.
+        if(!httpCachePath.isEmpty()) {
+            LOGGER.info("Caching USPTO responses in {} up to {} bytes", httpCachePath, httpCacheMaxSizeBytes);
+            httpClient.cache(new Cache(new File(httpCachePath), httpCacheMaxSizeBytes));
+        }
+
+        return httpClient.build();
+
+    }
+
+    @Bean
+    public UsptoService usptoService(OkHttpClient usptoHttpClient,
+                                     @Value("${uspto.base-url:https://developer.uspto.gov/ibd-api/}") String baseUrl) {
+
+        final Retrofit retrofit = new Retrofit.Builder()
+                .baseUrl(baseUrl)
+                .addConverterFactory(GsonConverterFactory.create())
+                .client(usptoHttpClient)
+                .build();
+
+        return retrofit.create(UsptoService.class);
+
+    }
+
+}
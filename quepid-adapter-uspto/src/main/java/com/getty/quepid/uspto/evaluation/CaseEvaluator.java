@@ -0,0 +1,415 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.uspto.evaluation;
+
+import com.getty.quepid.model.search.AbstractSearchService;
+import com.getty.quepid.model.search.Futures;
+import com.getty.quepid.model.search.Priority;
+import com.getty.quepid.model.solr.Doc;
+import com.getty.quepid.model.solr.FieldList;
+import com.getty.quepid.model.solr.Response;
+import com.getty.quepid.uspto.model.UsptoSearchRequest;
+import com.getty.quepid.uspto.model.UsptoSearchResponse;
+import com.getty.quepid.uspto.resilience.UpstreamUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Scores the search backend against the {@link Judgments} of a case, so a relevance change can be checked on
+ * thousands of queries without going through them one at a time in Quepid.
+ * <p>
+ * Each query is searched for its first k results, which are scored with nDCG@k, P@k and ERR@k. The
+ * {@link QueryEvaluation evaluations} are passed on as the searches complete, and the {@link EvaluationSummary}
+ * once they all have. At most <code>max-concurrency</code> searches are in flight and they are started no faster
+ * than <code>rate</code> per second, across all running evaluations, so evaluating doesn't use up the upstream's capacity.
+ * Searches are made at {@link Priority#BATCH} priority, behind Quepid's own requests, and never served from the search
+ * cache, whose results can be stale, so the scores are for the backend as it is now.
+ * A search turned away because the upstream is overloaded is tried again after a pause instead of failing its query.
+ */
+@Component
+public class CaseEvaluator {
+
+    private final Logger LOGGER = LoggerFactory.getLogger(CaseEvaluator.class);
+
+    // Only the IDs are needed to score the results.
+    private static final FieldList ID_ONLY = FieldList.parse("id");
+
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long BACKOFF_MS = 1000;
+
+    private final AbstractSearchService<UsptoSearchRequest, UsptoSearchResponse> searchService;
+    private final int defaultK;
+    private final double relevantRating;
+    private final double maxRating;
+    private final long intervalNanos;
+    private final Semaphore permits;
+    private final ExecutorService dispatcher;
+    private final ExecutorService workers;
+    private final ScheduledExecutorService backoff;
+
+    private long nextStartTime = System.nanoTime();
+
+    public CaseEvaluator(AbstractSearchService<UsptoSearchRequest, UsptoSearchResponse> searchService,
+                         @Value("${quepid.evaluation.k:10}") int defaultK,
+                         @Value("${quepid.evaluation.relevant-rating:1}") double relevantRating,
+                         @Value("${quepid.evaluation.max-rating:0}") double maxRating,
+                         @Value("${quepid.evaluation.max-concurrency:16}") int maxConcurrency,
+                         @Value("${quepid.evaluation.rate:20}") double rate) {
+
+        this.searchService = searchService;
+        this.defaultK = defaultK;
+        this.relevantRating = relevantRating;
+        this.maxRating = maxRating;
+        this.intervalNanos = rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / rate) : 0;
+        this.permits = new Semaphore(maxConcurrency);
+
+        this.dispatcher = Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "case-evaluator");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Searches are started from a pool so a backend that searches on the calling thread still searches in parallel.
+        final AtomicInteger threadNumber = new AtomicInteger();
+
+        this.workers = Executors.newFixedThreadPool(maxConcurrency, runnable -> {
+            final Thread thread = new Thread(runnable, "case-evaluator-search-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.backoff = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "case-evaluator-backoff");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    }
+
+    @PreDestroy
+    public void close() {
+
+        dispatcher.shutdownNow();
+        workers.shutdownNow();
+        backoff.shutdownNow();
+
+    }
+
+    public int getDefaultK() {
+        return defaultK;
+    }
+
+    /**
+     * Starts evaluating a case in the background.
+     * @param judgments The {@link Judgments} of the case.
+     * @param k The number of results to score for each query.
+     * @param listener Called with each {@link QueryEvaluation} as its search completes, from the thread that completed it.
+     * @return The {@link EvaluationSummary}, once every query has been evaluated. Cancelling it stops the evaluation;
+     * searches already in flight still complete but aren't passed on.
+     * @throws IllegalArgumentException Thrown if k isn't positive.
+     */
+    public CompletableFuture<EvaluationSummary> evaluate(final Judgments judgments, final int k,
+                                                         final Consumer<QueryEvaluation> listener) {
+
+        if(k < 1) {
+            throw new IllegalArgumentException("k must be at least 1, not " + k);
+        }
+
+        LOGGER.info("Evaluating {} queries at k={}", judgments.size(), k);
+
+        final Run run = new Run(judgments, k, listener);
+        dispatcher.execute(run::run);
+
+        return run.summary;
+
+    }
+
+    /**
+     * Waits for the next start allowed by the rate budget.
+     */
+    private void awaitStart() throws InterruptedException {
+
+        final long startTime;
+
+        synchronized (this) {
+            startTime = Math.max(nextStartTime, System.nanoTime());
+            nextStartTime = startTime + intervalNanos;
+        }
+
+        final long waitNanos = startTime - System.nanoTime();
+
+        if(waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+
+    }
+
+    /**
+     * One evaluation of a case.
+     */
+    private final class Run {
+
+        private final Judgments judgments;
+        private final int k;
+        private final double maxRating;
+        private final Consumer<QueryEvaluation> listener;
+        private final CompletableFuture<EvaluationSummary> summary = new CompletableFuture<>();
+        private final long startTime = System.nanoTime();
+
+        private int evaluated;
+        private int failed;
+        private int ndcgCount;
+        private double ndcgSum;
+        private double precisionSum;
+        private double errSum;
+
+        private Run(final Judgments judgments, final int k, final Consumer<QueryEvaluation> listener) {
+
+            this.judgments = judgments;
+            this.k = k;
+            this.maxRating = CaseEvaluator.this.maxRating > 0 ? CaseEvaluator.this.maxRating : judgments.getMaxRating();
+            this.listener = listener;
+
+        }
+
+        /**
+         * Starts a search for each query, keeping to the concurrency and rate limits, and completes the summary
+         * once they have all been evaluated.
+         */
+        private void run() {
+
+            final List<CompletableFuture<?>> evaluations = new ArrayList<>(judgments.size());
+
+            try {
+
+                for(final String query : judgments.getQueries()) {
+
+                    if(summary.isDone()) {
+                        break;
+                    }
+
+                    permits.acquire();
+                    awaitStart();
+
+                    evaluations.add(evaluate(query).whenComplete((evaluation, ex) -> {
+
+                        permits.release();
+
+                        if(evaluation != null) {
+                            add(evaluation);
+                        }
+
+                    }));
+
+                }
+
+            } catch (InterruptedException ex) {
+
+                Thread.currentThread().interrupt();
+                summary.cancel(false);
+
+            }
+
+            CompletableFuture.allOf(evaluations.toArray(new CompletableFuture<?>[0]))
+                    .whenComplete((result, ex) -> {
+
+                        final EvaluationSummary completed = getSummary();
+
+                        if(!summary.isDone()) {
+                            LOGGER.info("Evaluation {}", completed);
+                        }
+
+                        summary.complete(completed);
+
+                    });
+
+        }
+
+        /**
+         * Searches for a query and scores its results.
+         * @param query The query.
+         * @return The {@link QueryEvaluation}. It never completes exceptionally.
+         */
+        private CompletableFuture<QueryEvaluation> evaluate(final String query) {
+
+            final CompletableFuture<QueryEvaluation> evaluation = new CompletableFuture<>();
+            search(query, 1, System.nanoTime(), evaluation);
+
+            return evaluation;
+
+        }
+
+        /**
+         * Makes one attempt at searching for a query, and scores its results or tries again later.
+         * @param query The query.
+         * @param attempt The attempt number, starting at 1.
+         * @param queryStartTime When the first attempt was started.
+         * @param evaluation Completed with the {@link QueryEvaluation}.
+         */
+        private void search(final String query, final int attempt, final long queryStartTime,
+                            final CompletableFuture<QueryEvaluation> evaluation) {
+
+            final UsptoSearchRequest searchRequest = new UsptoSearchRequest(query);
+            searchRequest.setRows(k);
+            searchRequest.setFields(ID_ONLY);
+            searchRequest.setCacheable(false);
+
+            CompletableFuture.supplyAsync(() -> searchService.searchAsync(searchRequest, Priority.BATCH), workers)
+                    .thenCompose(searchResponse -> searchResponse)
+                    .whenComplete((searchResponse, ex) -> {
+
+                        final Throwable cause = ex == null ? null : Futures.unwrap(ex);
+
+                        // The upstream is overloaded or unhealthy, so back off rather than failing the query.
+                        // The search keeps its permit while it waits, which slows the evaluation down too.
+                        if(cause instanceof UpstreamUnavailableException && attempt < MAX_ATTEMPTS && !summary.isDone()) {
+
+                            backoff.schedule(() -> search(query, attempt + 1, queryStartTime, evaluation),
+                                    BACKOFF_MS * attempt, TimeUnit.MILLISECONDS);
+
+                            return;
+
+                        }
+
+                        final long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - queryStartTime);
+
+                        if(cause != null) {
+                            LOGGER.debug("Evaluation search for \"{}\" failed: {}", query, cause.toString());
+                            evaluation.complete(QueryEvaluation.failed(query, elapsedMs, cause.toString()));
+                        } else {
+                            evaluation.complete(score(query, searchResponse.getSolrResponse().getResponse(), elapsedMs));
+                        }
+
+                    });
+
+        }
+
+        /**
+         * Scores the results of a query against its ratings.
+         * @param query The query.
+         * @param response The search {@link Response}.
+         * @param elapsedMs How long the search took.
+         * @return The {@link QueryEvaluation}.
+         */
+        private QueryEvaluation score(final String query, final Response response, final long elapsedMs) {
+
+            final Map<String, Double> ratings = judgments.getRatings(query);
+            final List<String> documentIds = new ArrayList<>(k);
+            int unrated = 0;
+
+            for(final Doc doc : response.getDocs()) {
+
+                if(documentIds.size() == k) {
+                    break;
+                }
+
+                documentIds.add(doc.getId());
+
+                if(!ratings.containsKey(doc.getId())) {
+                    unrated++;
+                }
+
+            }
+
+            return new QueryEvaluation(query, response.getNumFound(), documentIds.size(), unrated,
+                    RelevanceMetrics.ndcg(documentIds, ratings, k),
+                    RelevanceMetrics.precision(documentIds, ratings, k, relevantRating),
+                    RelevanceMetrics.err(documentIds, ratings, k, maxRating), elapsedMs, null);
+
+        }
+
+        /**
+         * Adds a query to the totals and passes it on, unless the evaluation has been cancelled.
+         * @param evaluation The {@link QueryEvaluation}.
+         */
+        private void add(final QueryEvaluation evaluation) {
+
+            synchronized (this) {
+
+                if(evaluation.getError() != null) {
+
+                    failed++;
+
+                } else {
+
+                    evaluated++;
+                    precisionSum += evaluation.getPrecision();
+                    errSum += evaluation.getErr();
+
+                    if(evaluation.getNdcg() != null) {
+                        ndcgCount++;
+                        ndcgSum += evaluation.getNdcg();
+                    }
+
+                }
+
+            }
+
+            if(summary.isDone()) {
+                return;
+            }
+
+            try {
+                listener.accept(evaluation);
+            } catch (RuntimeException ex) {
+                LOGGER.warn("Stopping the evaluation, its results can't be passed on: {}", ex.toString());
+                summary.cancel(false);
+            }
+
+        }
+
+        /**
+         * Takes a snapshot of the totals.
+         * @return The {@link EvaluationSummary}.
+         */
+        private synchronized EvaluationSummary getSummary() {
+
+            final long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
+            return new EvaluationSummary(k, judgments.size(), evaluated, failed,
+                    ndcgCount == 0 ? null : ndcgSum / ndcgCount,
+                    evaluated == 0 ? null : precisionSum / evaluated,
+                    evaluated == 0 ? null : errSum / evaluated,
+                    summary.isCancelled(), elapsedMs);
+
+        }
+
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.uspto.evaluation;
+
+/**
+ * The metrics of a case, averaged over its queries. nDCG is averaged over the queries that have a positive rating,
+ * and failed queries aren't averaged at all.
+ */
+public class EvaluationSummary {
+
+    private final int k;
+    private final int queries;
+    private final int evaluated;
+    private final int failed;
+    private final Double ndcg;
+    private final Double precision;
+    private final Double err;
+    private final boolean cancelled;
+    private final long elapsedMs;
+
+    public EvaluationSummary(int k, int queries, int evaluated, int failed, Double ndcg, Double precision, Double err,
+                             boolean cancelled, long elapsedMs) {
+
+        this.k = k;
+        this.queries = queries;
+        this.evaluated = evaluated;
+        this.failed = failed;
+        this.ndcg = ndcg;
+        this.precision = precision;
+        this.err = err;
+        this.cancelled = cancelled;
+        this.elapsedMs = elapsedMs;
+
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    public int getQueries() {
+        return queries;
+    }
+
+    public int getEvaluated() {
+        return evaluated;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    /**
+     * Gets the mean nDCG@k.
+     * @return The mean nDCG@k, or <code>null</code> if no evaluated query has a positive rating.
+     */
+    public Double getNdcg() {
+        return ndcg;
+    }
+
+    public Double getPrecision() {
+        return precision;
+    }
+
+    public Double getErr() {
+        return err;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public long getElapsedMs() {
+        return elapsedMs;
+    }
+
+    @Override
+    public String toString() {
+        return (cancelled ? "cancelled after " : "") + evaluated + "/" + queries + " queries (" + failed + " failed) in "
+                + elapsedMs + "ms: nDCG@" + k + "=" + ndcg + " P@" + k + "=" + precision + " ERR@" + k + "=" + err;
+    }
+
+}
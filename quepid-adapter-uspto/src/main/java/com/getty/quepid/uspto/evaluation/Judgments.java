@@ -0,0 +1,159 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.uspto.evaluation;
+
+import com.getty.quepid.model.search.CsvLines;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The queries of a case and the ratings given to their documents.
+ * <p>
+ * It is read from a Quepid case export, the ratings CSV with <code>Query Text</code>, <code>Doc ID</code> and
+ * <code>Rating</code> columns. Queries are kept in the order they first appear. A query without rated documents,
+ * which Quepid exports with an empty <code>Doc ID</code>, is still evaluated. If a document is rated more than once
+ * for a query the last rating is used.
+ */
+public class Judgments {
+
+    private final Map<String, Map<String, Double>> ratings;
+    private final double maxRating;
+
+    public Judgments(Map<String, Map<String, Double>> ratings) {
+
+        final Map<String, Map<String, Double>> copy = new LinkedHashMap<>();
+        double max = 0;
+
+        for(final Map.Entry<String, Map<String, Double>> entry : ratings.entrySet()) {
+
+            copy.put(entry.getKey(), Collections.unmodifiableMap(new LinkedHashMap<>(entry.getValue())));
+
+            for(final double rating : entry.getValue().values()) {
+                max = Math.max(max, rating);
+            }
+
+        }
+
+        this.ratings = Collections.unmodifiableMap(copy);
+        this.maxRating = max;
+
+    }
+
+    /**
+     * Reads a Quepid ratings CSV.
+     * @param reader The {@link Reader}. It is not closed.
+     * @return The {@link Judgments}.
+     * @throws IOException Thrown if the input can't be read.
+     * @throws IllegalArgumentException Thrown if the input has no query or rating column, or a rating isn't a number.
+     */
+    public static Judgments read(final Reader reader) throws IOException {
+
+        final BufferedReader lines = new BufferedReader(reader);
+        final String headerLine = CsvLines.stripByteOrderMark(lines.readLine());
+
+        final List<String> header = headerLine == null ? Collections.<String>emptyList() : CsvLines.parse(headerLine);
+        final int queryColumn = CsvLines.indexOf(header, "query text", "query");
+        final int docColumn = CsvLines.indexOf(header, "doc id", "docid", "document id");
+        final int ratingColumn = CsvLines.indexOf(header, "rating", "grade");
+
+        if(queryColumn == -1 || docColumn == -1 || ratingColumn == -1) {
+            throw new IllegalArgumentException("Judgments need Query Text, Doc ID and Rating columns, found " + header);
+        }
+
+        final Map<String, Map<String, Double>> ratings = new LinkedHashMap<>();
+        String line;
+        int lineNumber = 1;
+
+        while((line = lines.readLine()) != null) {
+
+            lineNumber++;
+
+            if(line.trim().isEmpty()) {
+                continue;
+            }
+
+            final List<String> columns = CsvLines.parse(line);
+            final String query = CsvLines.get(columns, queryColumn);
+            final String documentId = CsvLines.get(columns, docColumn);
+            final String rating = CsvLines.get(columns, ratingColumn);
+
+            if(query.isEmpty()) {
+                continue;
+            }
+
+            final Map<String, Double> queryRatings = ratings.computeIfAbsent(query, key -> new LinkedHashMap<>());
+
+            if(documentId.isEmpty() || rating.isEmpty()) {
+                continue;
+            }
+
+            try {
+                queryRatings.put(documentId, Double.parseDouble(rating));
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Rating \"" + rating + "\" on line " + lineNumber + " isn't a number");
+            }
+
+        }
+
+        return new Judgments(ratings);
+
+    }
+
+    public List<String> getQueries() {
+        return new ArrayList<>(ratings.keySet());
+    }
+
+    /**
+     * Gets the ratings of a query's documents.
+     * @param query The query.
+     * @return The rating of each rated document ID.
+     */
+    public Map<String, Double> getRatings(final String query) {
+
+        final Map<String, Double> queryRatings = ratings.get(query);
+
+        return queryRatings == null ? Collections.<String, Double>emptyMap() : queryRatings;
+
+    }
+
+    /**
+     * Gets the highest rating given to any document, the top of the rating scale as far as the judgments show.
+     * @return The highest rating, or 0 if nothing is rated.
+     */
+    public double getMaxRating() {
+        return maxRating;
+    }
+
+    public int size() {
+        return ratings.size();
+    }
+
+}
@@ -0,0 +1,117 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.uspto.evaluation;
+
+/**
+ * The evaluation of one query of a case. A query whose search failed has an error and no metrics.
+ */
+public class QueryEvaluation {
+
+    private final String query;
+    private final int numFound;
+    private final int results;
+    private final int unrated;
+    private final Double ndcg;
+    private final Double precision;
+    private final Double err;
+    private final long elapsedMs;
+    private final String error;
+
+    public QueryEvaluation(String query, int numFound, int results, int unrated, Double ndcg, Double precision,
+                           Double err, long elapsedMs, String error) {
+
+        this.query = query;
+        this.numFound = numFound;
+        this.results = results;
+        this.unrated = unrated;
+        this.ndcg = ndcg;
+        this.precision = precision;
+        this.err = err;
+        this.elapsedMs = elapsedMs;
+        this.error = error;
+
+    }
+
+    /**
+     * Creates the evaluation of a query whose search failed.
+     * @param query The query.
+     * @param elapsedMs How long the search took to fail.
+     * @param error What went wrong.
+     * @return The {@link QueryEvaluation}.
+     */
+    public static QueryEvaluation failed(final String query, final long elapsedMs, final String error) {
+
+        return new QueryEvaluation(query, 0, 0, 0, null, null, null, elapsedMs, error);
+
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public int getNumFound() {
+        return numFound;
+    }
+
+    /**
+     * Gets the number of results scored, up to k.
+     * @return The number of results.
+     */
+    public int getResults() {
+        return results;
+    }
+
+    /**
+     * Gets the number of results scored that have no rating, which are worth rating before trusting the metrics.
+     * @return The number of unrated results.
+     */
+    public int getUnrated() {
+        return unrated;
+    }
+
+    /**
+     * Gets nDCG@k.
+     * @return nDCG@k, or <code>null</code> if the search failed or no document of the query has a positive rating.
+     */
+    public Double getNdcg() {
+        return ndcg;
+    }
+
+    public Double getPrecision() {
+        return precision;
+    }
+
+    public Double getErr() {
+        return err;
+    }
+
+    public long getElapsedMs() {
+        return elapsedMs;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+}
@@ -0,0 +1,169 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.uspto.evaluation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Relevance metrics of a ranking, scored against the ratings of a query's documents. Documents without a rating
+ * count as irrelevant. Graded ratings are turned into gains of <code>2^rating - 1</code>, so a document rated 3
+ * is worth much more than two documents rated 2.
+ */
+public final class RelevanceMetrics {
+
+    private RelevanceMetrics() {
+    }
+
+    /**
+     * Normalized discounted cumulative gain at k. The ideal ranking is made from every rated document of the query,
+     * not only the ones that were found.
+     * @param documentIds The ranked document IDs.
+     * @param ratings The rating of each rated document ID.
+     * @param k The rank to score to.
+     * @return nDCG@k between 0 and 1, or <code>null</code> if no document of the query has a positive rating.
+     */
+    public static Double ndcg(final List<String> documentIds, final Map<String, Double> ratings, final int k) {
+
+        final List<Double> idealRatings = new ArrayList<>(ratings.values());
+        idealRatings.sort(Collections.reverseOrder());
+
+        final double idealDcg = dcg(idealRatings, k);
+
+        if(idealDcg <= 0) {
+            return null;
+        }
+
+        return dcg(getRatings(documentIds, ratings), k) / idealDcg;
+
+    }
+
+    /**
+     * Precision at k, the share of the first k results that are relevant. Fewer than k results count as irrelevant ones.
+     * @param documentIds The ranked document IDs.
+     * @param ratings The rating of each rated document ID.
+     * @param k The rank to score to.
+     * @param relevantRating The lowest rating that counts as relevant.
+     * @return P@k between 0 and 1.
+     */
+    public static double precision(final List<String> documentIds, final Map<String, Double> ratings, final int k,
+                                   final double relevantRating) {
+
+        int relevant = 0;
+
+        for(final double rating : getRatings(documentIds, ratings).subList(0, Math.min(k, documentIds.size()))) {
+
+            if(rating >= relevantRating) {
+                relevant++;
+            }
+
+        }
+
+        return (double) relevant / k;
+
+    }
+
+    /**
+     * Expected reciprocal rank at k, the expected reciprocal of the rank at which a user finds what they were
+     * looking for, if they stop at a document with a probability that grows with its rating. The probability is the
+     * rating's gain over <code>2^maxRating</code>, so even a document with the top rating leaves some users looking,
+     * e.g. a quarter of them on a 0 to 2 scale.
+     * @param documentIds The ranked document IDs.
+     * @param ratings The rating of each rated document ID.
+     * @param k The rank to score to.
+     * @param maxRating The top of the rating scale.
+     * @return ERR@k between 0 and 1.
+     */
+    public static double err(final List<String> documentIds, final Map<String, Double> ratings, final int k,
+                             final double maxRating) {
+
+        final List<Double> rankedRatings = getRatings(documentIds, ratings);
+        final double maxGain = Math.pow(2, maxRating);
+
+        double err = 0;
+        double notSatisfied = 1;
+
+        for(int i = 0; i < Math.min(k, rankedRatings.size()); i++) {
+
+            final double stopProbability = Math.min(1, gain(rankedRatings.get(i)) / maxGain);
+
+            err += notSatisfied * stopProbability / (i + 1);
+            notSatisfied *= 1 - stopProbability;
+
+        }
+
+        return err;
+
+    }
+
+    /**
+     * Discounted cumulative gain at k.
+     * @param rankedRatings The ratings in ranked order.
+     * @param k The rank to score to.
+     * @return DCG@k.
+     */
+    private static double dcg(final List<Double> rankedRatings, final int k) {
+
+        double dcg = 0;
+
+        for(int i = 0; i < Math.min(k, rankedRatings.size()); i++) {
+            dcg += gain(rankedRatings.get(i)) / (Math.log(i + 2) / Math.log(2));
+        }
+
+        return dcg;
+
+    }
+
+    /**
+     * Gets the gain of a rating.
+     * @param rating The rating.
+     * @return <code>2^rating - 1</code>, or 0 for ratings below 0.
+     */
+    private static double gain(final double rating) {
+
+        return rating > 0 ? Math.pow(2, rating) - 1 : 0;
+
+    }
+
+    /**
+     * Gets the ratings of ranked documents.
+     * @param documentIds The ranked document IDs.
+     * @param ratings The rating of each rated document ID.
+     * @return The rating of each document, 0 for unrated ones.
+     */
+    private static List<Double> getRatings(final List<String> documentIds, final Map<String, Double> ratings) {
+
+        final List<Double> rankedRatings = new ArrayList<>(documentIds.size());
+
+        for(final String documentId : documentIds) {
+            rankedRatings.add(ratings.getOrDefault(documentId, 0.0));
+        }
+
+        return rankedRatings;
+
+    }
+
+}
@@ -0,0 +1,244 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.uspto.logging;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Source;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logs calls to the USPTO API without buffering their responses.
+ * <p>
+ * Every call gets a one line <code>key=value</code> summary at DEBUG with the URL, status, latency and bytes read.
+ * Errors, slow calls and one in every <code>sampleRate</code> calls are logged at INFO or WARN instead,
+ * with as much detail as the {@link Level} asks for. Calls that fail because they were cancelled, such as the
+ * losers of a hedged call, stay at DEBUG. Bodies are logged by peeking at most
+ * <code>maxBodyBytes</code> of the response, so the stream the grants are read from is left alone.
+ */
+public class SampledLoggingInterceptor implements Interceptor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SampledLoggingInterceptor.class);
+
+    /**
+     * How much of a logged call is included.
+     */
+    public enum Level {
+
+        /** Nothing is logged. */
+        NONE,
+
+        /** The summary line. */
+        BASIC,
+
+        /** The summary line and the request and response headers. */
+        HEADERS,
+
+        /** The summary line, the headers and the start of the response body. */
+        BODY
+
+    }
+
+    private final Level level;
+    private final int sampleRate;
+    private final long slowThresholdNanos;
+    private final long maxBodyBytes;
+    private final AtomicLong calls = new AtomicLong();
+
+    /**
+     * Creates the interceptor.
+     * @param level How much of a logged call is included.
+     * @param sampleRate Log one in every this many calls in full (0 only logs errors and slow calls).
+     * @param slowThreshold Calls that take longer than this to return their headers are always logged.
+     * @param maxBodyBytes The most of a response body that is logged.
+     */
+    public SampledLoggingInterceptor(final Level level, final int sampleRate, final Duration slowThreshold, final long maxBodyBytes) {
+
+        this.level = level;
+        this.sampleRate = sampleRate;
+        this.slowThresholdNanos = slowThreshold.toNanos();
+        this.maxBodyBytes = maxBodyBytes;
+
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+
+        final Request request = chain.request();
+
+        if(level == Level.NONE) {
+            return chain.proceed(request);
+        }
+
+        final boolean sampled = sampleRate > 0 && calls.getAndIncrement() % sampleRate == 0;
+        final long startTime = System.nanoTime();
+
+        final Response response;
+
+        try {
+            response = chain.proceed(request);
+        } catch (IOException ex) {
+
+            // Calls are cancelled when a hedge or retry beats them, which is nothing to warn about.
+            if(chain.call().isCanceled()) {
+                LOGGER.debug("uspto call cancelled method={} url={} latencyMs={}", request.method(), request.url(), elapsedMillis(startTime));
+            } else {
+                LOGGER.warn("uspto call failed method={} url={} latencyMs={} error=\"{}\"", request.method(), request.url(), elapsedMillis(startTime), ex.toString());
+            }
+
+            throw ex;
+
+        }
+
+        final long latencyNanos = System.nanoTime() - startTime;
+        final long latencyMillis = TimeUnit.NANOSECONDS.toMillis(latencyNanos);
+        final boolean error = !response.isSuccessful();
+        final boolean slow = latencyNanos >= slowThresholdNanos;
+        final boolean notable = sampled || error || slow;
+
+        if(!notable && !LOGGER.isDebugEnabled()) {
+            return response;
+        }
+
+        if(notable && level.compareTo(Level.HEADERS) >= 0) {
+            LOGGER.info("uspto call headers url={} request=[{}] response=[{}]", request.url(), oneLine(request.headers().toString()), oneLine(response.headers().toString()));
+        }
+
+        if(notable && level == Level.BODY && response.body() != null) {
+            LOGGER.info("uspto call body url={} body=\"{}\"", request.url(), response.peekBody(maxBodyBytes).string());
+        }
+
+        if(response.body() == null) {
+            logSummary(request, response, latencyMillis, startTime, 0, error || slow, notable);
+            return response;
+        }
+
+        // Count the bytes as the grants are streamed out and log the summary once the body is done.
+        final ResponseBody body = response.body();
+
+        final Source countingSource = new ForwardingSource(body.source()) {
+
+            private long bytes;
+            private boolean logged;
+
+            @Override
+            public long read(Buffer sink, long byteCount) throws IOException {
+
+                final long read = super.read(sink, byteCount);
+
+                if(read == -1) {
+                    done();
+                } else {
+                    bytes += read;
+                }
+
+                return read;
+
+            }
+
+            @Override
+            public void close() throws IOException {
+
+                done();
+                super.close();
+
+            }
+
+            private void done() {
+
+                if(!logged) {
+                    logged = true;
+                    logSummary(request, response, latencyMillis, startTime, bytes, error || slow, notable);
+                }
+
+            }
+
+        };
+
+        return response.newBuilder()
+                .body(ResponseBody.create(body.contentType(), body.contentLength(), Okio.buffer(countingSource)))
+                .build();
+
+    }
+
+    /**
+     * Logs the one line summary of a call.
+     * @param request The {@link Request}.
+     * @param response The {@link Response}.
+     * @param latencyMillis The time taken for the response headers to arrive.
+     * @param startTime When the call started, from {@link System#nanoTime()}.
+     * @param bytes The number of body bytes read.
+     * @param warn Whether the call failed or was slow.
+     * @param notable Whether the call is logged above DEBUG.
+     */
+    private void logSummary(final Request request, final Response response, final long latencyMillis, final long startTime,
+                            final long bytes, final boolean warn, final boolean notable) {
+
+        final String format = "uspto call method={} url={} status={} protocol={} latencyMs={} totalMs={} bytes={}";
+        final Object[] arguments = {request.method(), request.url(), response.code(), response.protocol(), latencyMillis, elapsedMillis(startTime), bytes};
+
+        if(warn) {
+            LOGGER.warn(format, arguments);
+        } else if(notable) {
+            LOGGER.info(format, arguments);
+        } else {
+            LOGGER.debug(format, arguments);
+        }
+
+    }
+
+    /**
+     * Gets the milliseconds since a call started.
+     * @param startTime When the call started, from {@link System#nanoTime()}.
+     * @return The elapsed milliseconds.
+     */
+    private static long elapsedMillis(final long startTime) {
+
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
+    }
+
+    /**
+     * Puts headers on one line so each log entry stays on one line.
+     * @param headers The headers, one per line.
+     * @return The headers separated by semicolons.
+     */
+    private static String oneLine(final String headers) {
+
+        return headers.trim().replace('\n', ';');
+
+    }
+
+}
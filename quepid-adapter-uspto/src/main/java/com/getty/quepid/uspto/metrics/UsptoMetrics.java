@@ -0,0 +1,224 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.uspto.metrics;
+
+import com.getty.quepid.model.search.Priority;
+import com.getty.quepid.uspto.cache.DocumentCache;
+import com.getty.quepid.uspto.cache.DocumentInterner;
+import com.getty.quepid.uspto.cache.DocumentStore;
+import com.getty.quepid.uspto.cache.SearchCache;
+import com.getty.quepid.uspto.resilience.CircuitBreaker;
+import com.getty.quepid.uspto.resilience.ConcurrencyLimiter;
+import com.getty.quepid.uspto.resilience.HedgingPolicy;
+import com.getty.quepid.uspto.resilience.RetryBudget;
+import com.getty.quepid.uspto.resilience.UpstreamScheduler;
+import com.getty.quepid.uspto.services.UsptoSearchService;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Publishes the document and search caches, document store, shared docs, request coalescing, concurrency limit, circuit breaker, hedging, retry budget and scheduler statistics as meters.
+ * The cache meters follow the names Micrometer uses for its own Caffeine cache metrics.
+ * <p>
+ * The search service is injected lazily because it needs the meter registry, which binds these meters when it is created.
+ */
+@Component
+@ConditionalOnProperty(name = "quepid.backend", havingValue = "uspto", matchIfMissing = true)
+public class UsptoMetrics implements MeterBinder {
+
+    private final DocumentCache documentCache;
+    private final SearchCache searchCache;
+    private final DocumentStore documentStore;
+    private final DocumentInterner documentInterner;
+    private final UsptoSearchService searchService;
+    private final ConcurrencyLimiter concurrencyLimiter;
+    private final CircuitBreaker circuitBreaker;
+    private final HedgingPolicy hedgingPolicy;
+    private final RetryBudget retryBudget;
+    private final UpstreamScheduler scheduler;
+
+    public UsptoMetrics(DocumentCache documentCache, SearchCache searchCache, DocumentStore documentStore, DocumentInterner documentInterner,
+                        @Lazy UsptoSearchService searchService, ConcurrencyLimiter concurrencyLimiter, CircuitBreaker circuitBreaker,
+                        HedgingPolicy hedgingPolicy, RetryBudget retryBudget, UpstreamScheduler scheduler) {
+
+        this.documentCache = documentCache;
+        this.searchCache = searchCache;
+        this.documentStore = documentStore;
+        this.documentInterner = documentInterner;
+        this.searchService = searchService;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.circuitBreaker = circuitBreaker;
+        this.hedgingPolicy = hedgingPolicy;
+        this.retryBudget = retryBudget;
+        this.scheduler = scheduler;
+
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+
+        bindCache(registry, "uspto.documents", documentCache, DocumentCache::getStats, DocumentCache::getWeightBytes);
+        bindCache(registry, "uspto.searches", searchCache, SearchCache::getStats, SearchCache::getWeightBytes);
+
+        Gauge.builder("uspto.document.store.documents", documentStore, DocumentStore::getDocumentCount)
+                .description("The number of documents in the on-disk document store.")
+                .register(registry);
+
+        Gauge.builder("uspto.document.store.size", documentStore, DocumentStore::getSizeBytes)
+                .description("The size of the on-disk document store.")
+                .baseUnit("bytes")
+                .register(registry);
+
+        Gauge.builder("uspto.documents.shared", documentInterner, DocumentInterner::getSize)
+                .description("The approximate number of docs shared between cached search results.")
+                .register(registry);
+
+        FunctionCounter.builder("uspto.coalesced", searchService, UsptoSearchService::getCoalescedLookupCount)
+                .tags("call", "document")
+                .description("Requests that shared another request's in-flight USPTO call.")
+                .register(registry);
+
+        FunctionCounter.builder("uspto.coalesced", searchService, UsptoSearchService::getCoalescedSearchCount)
+                .tags("call", "search")
+                .description("Requests that shared another request's in-flight USPTO call.")
+                .register(registry);
+
+        Gauge.builder("uspto.limiter.limit", concurrencyLimiter, ConcurrencyLimiter::getLimit)
+                .description("The adaptive limit on USPTO calls in flight.")
+                .register(registry);
+
+        Gauge.builder("uspto.limiter.in.flight", concurrencyLimiter, ConcurrencyLimiter::getInFlight)
+                .description("USPTO calls in flight.")
+                .register(registry);
+
+        FunctionCounter.builder("uspto.limiter.rejected", concurrencyLimiter, ConcurrencyLimiter::getRejectedCount)
+                .description("USPTO calls rejected because the concurrency limit was reached.")
+                .register(registry);
+
+        // One gauge per state, set to 1 for the current state, so dashboards can show the state over time.
+        for(final CircuitBreaker.State state : CircuitBreaker.State.values()) {
+
+            Gauge.builder("uspto.circuit.breaker.state", circuitBreaker, breaker -> breaker.getState() == state ? 1 : 0)
+                    .tags("state", state.name().toLowerCase(Locale.ROOT))
+                    .description("Whether the USPTO circuit breaker is in this state.")
+                    .register(registry);
+
+        }
+
+        FunctionCounter.builder("uspto.circuit.breaker.rejected", circuitBreaker, CircuitBreaker::getRejectedCount)
+                .description("USPTO calls rejected because the circuit breaker was open.")
+                .register(registry);
+
+        for(final String callName : new String[] { "document", "search" }) {
+
+            // There's no delay to show until calls of that kind are hedged.
+            TimeGauge.builder("uspto.hedging.delay", hedgingPolicy, TimeUnit.NANOSECONDS, policy -> {
+                        final long delayNanos = policy.getDelayNanos(callName);
+                        return delayNanos < 0 ? Double.NaN : delayNanos;
+                    })
+                    .tags("call", callName)
+                    .description("How long a USPTO call waits before it is hedged.")
+                    .register(registry);
+
+        }
+
+        Gauge.builder("uspto.retry.budget.balance", retryBudget, RetryBudget::getBalance)
+                .description("The hedges and retries the retry budget has left.")
+                .register(registry);
+
+        FunctionCounter.builder("uspto.retry.budget.rejected", retryBudget, RetryBudget::getRejectedCount)
+                .description("Hedges and retries that weren't made because the retry budget was spent.")
+                .register(registry);
+
+        for(final Priority priority : Priority.values()) {
+
+            Gauge.builder("uspto.scheduler.queued", scheduler, s -> s.getQueued(priority))
+                    .tags("priority", priority.getTag())
+                    .description("USPTO calls waiting for the rate budget.")
+                    .register(registry);
+
+            FunctionCounter.builder("uspto.scheduler.rejected", scheduler, s -> s.getRejectedCount(priority))
+                    .tags("priority", priority.getTag())
+                    .description("USPTO calls turned away because too many calls of their priority were waiting.")
+                    .register(registry);
+
+        }
+
+        Gauge.builder("uspto.scheduler.tokens", scheduler, UpstreamScheduler::getTokens)
+                .description("The USPTO calls the rate budget has left.")
+                .register(registry);
+
+        FunctionCounter.builder("uspto.scheduler.promoted", scheduler, UpstreamScheduler::getPromotedCount)
+                .description("Waiting USPTO calls moved up because a more urgent request shared them.")
+                .register(registry);
+
+    }
+
+    /**
+     * Binds the meters Micrometer uses for its own Caffeine cache metrics, plus the cache's weight.
+     * @param registry The {@link MeterRegistry}.
+     * @param name The cache name tag.
+     * @param cache The cache.
+     * @param stats Gets the {@link CacheStats} from the cache.
+     * @param weightBytes Gets the approximate bytes held by the cache.
+     */
+    private static <C> void bindCache(final MeterRegistry registry, final String name, final C cache,
+                                      final Function<C, CacheStats> stats, final ToDoubleFunction<C> weightBytes) {
+
+        FunctionCounter.builder("cache.gets", cache, c -> stats.apply(c).hitCount())
+                .tags("cache", name, "result", "hit")
+                .description("The number of times cache lookup methods have returned a cached value.")
+                .register(registry);
+
+        FunctionCounter.builder("cache.gets", cache, c -> stats.apply(c).missCount())
+                .tags("cache", name, "result", "miss")
+                .description("The number of times cache lookup methods have returned an uncached value.")
+                .register(registry);
+
+        FunctionCounter.builder("cache.evictions", cache, c -> stats.apply(c).evictionCount())
+                .tags("cache", name)
+                .description("The number of times the cache was evicted.")
+                .register(registry);
+
+        Gauge.builder("cache.weight", cache, weightBytes)
+                .tags("cache", name)
+                .description("The approximate bytes held by the cache.")
+                .baseUnit("bytes")
+                .register(registry);
+
+    }
+
+}
@@ -0,0 +1,52 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.uspto.model;
+
+import java.util.List;
+
+/**
+ * A page of grants from a USPTO search and the total number of matching grants, when the API reports it.
+ */
+public class GrantPage {
+
+    /** The total when the response doesn't include one. */
+    public static final int UNKNOWN_TOTAL = -1;
+
+    private final List<Grant> grants;
+    private final int total;
+
+    public GrantPage(List<Grant> grants, int total) {
+        this.grants = grants;
+        this.total = total;
+    }
+
+    public List<Grant> getGrants() {
+        return grants;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+}
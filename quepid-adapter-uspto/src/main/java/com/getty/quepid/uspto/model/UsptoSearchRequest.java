@@ -24,13 +24,18 @@ SOFTWARE.
 package com.getty.quepid.uspto.model;
 
 import com.getty.quepid.model.search.AbstractSearchRequest;
+import com.getty.quepid.model.solr.FieldList;
+
+import java.util.Objects;
 
 public class UsptoSearchRequest extends AbstractSearchRequest {
 
     private String searchText;
     private int start = 0;
-    private int rows = 100;
+    private int rows = 10;
     private String largeTextSearchFlag = "N";
+    private FieldList fields = FieldList.ALL;
+    private boolean cacheable = true;
 
     public UsptoSearchRequest(String searchText) {
         this.searchText = searchText;
@@ -68,4 +73,42 @@ public class UsptoSearchRequest extends AbstractSearchRequest {
         this.largeTextSearchFlag = largeTextSearchFlag;
     }
 
+    public FieldList getFields() {
+        return fields;
+    }
+
+    public void setFields(FieldList fields) {
+        this.fields = fields;
+    }
+
+    public boolean isCacheable() {
+        return cacheable;
+    }
+
+    /**
+     * Sets whether the search can be served from a cached result, which may be stale. A search that can't still
+     * caches its fresh result. This isn't part of the request's identity, as it doesn't change the result.
+     * @param cacheable <code>false</code> to always search the USPTO API.
+     */
+    public void setCacheable(boolean cacheable) {
+        this.cacheable = cacheable;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        UsptoSearchRequest that = (UsptoSearchRequest) o;
+        return start == that.start
+                && rows == that.rows
+                && Objects.equals(searchText, that.searchText)
+                && Objects.equals(largeTextSearchFlag, that.largeTextSearchFlag)
+                && Objects.equals(fields, that.fields);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(searchText, start, rows, largeTextSearchFlag, fields);
+    }
+
 }
@@ -0,0 +1,245 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.uspto.resilience;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Stops calling the USPTO API for a while when too many recent calls have failed.
+ * <p>
+ * While closed, the outcomes of the last <code>window-size</code> calls are kept. Once at least
+ * <code>minimum-calls</code> of them have been seen and the failure rate reaches the threshold the breaker opens
+ * and calls fail fast for <code>open-duration</code>. After that it is half open and lets a few probe calls through:
+ * if they all succeed it closes again, and if any fails it opens again.
+ */
+@Component
+@ConditionalOnProperty(name = "quepid.backend", havingValue = "uspto", matchIfMissing = true)
+public class CircuitBreaker {
+
+    /**
+     * The breaker states.
+     */
+    public enum State {
+
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+
+    }
+
+    private final boolean enabled;
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final long openDurationNanos;
+    private final int halfOpenCalls;
+
+    // Ring buffer of the latest outcomes while closed, true for a failure.
+    private final boolean[] window;
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+
+    private State state = State.CLOSED;
+    private long openedTime;
+    private int probesStarted;
+    private int probesSucceeded;
+    private long rejectedCount;
+
+    public CircuitBreaker(@Value("${uspto.circuit-breaker.enabled:true}") boolean enabled,
+                          @Value("${uspto.circuit-breaker.failure-rate-threshold:0.5}") double failureRateThreshold,
+                          @Value("${uspto.circuit-breaker.window-size:20}") int windowSize,
+                          @Value("${uspto.circuit-breaker.minimum-calls:10}") int minimumCalls,
+                          @Value("${uspto.circuit-breaker.open-duration:30s}") Duration openDuration,
+                          @Value("${uspto.circuit-breaker.half-open-calls:3}") int halfOpenCalls) {
+
+        this.enabled = enabled;
+        this.failureRateThreshold = failureRateThreshold;
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.openDurationNanos = openDuration.toNanos();
+        this.halfOpenCalls = halfOpenCalls;
+        this.window = new boolean[windowSize];
+
+    }
+
+    /**
+     * Checks whether a call may be made. A permitted call must report its outcome with
+     * {@link #onSuccess()} or {@link #onFailure()}, or {@link #onIgnored()} if its outcome says nothing about the USPTO API.
+     * @return <code>true</code> if the call can go ahead.
+     */
+    public synchronized boolean tryAcquire() {
+
+        if(!enabled || state == State.CLOSED) {
+            return true;
+        }
+
+        if(state == State.OPEN) {
+
+            if(System.nanoTime() - openedTime < openDurationNanos) {
+                rejectedCount++;
+                return false;
+            }
+
+            state = State.HALF_OPEN;
+            probesStarted = 0;
+            probesSucceeded = 0;
+
+        }
+
+        if(probesStarted < halfOpenCalls) {
+            probesStarted++;
+            return true;
+        }
+
+        rejectedCount++;
+        return false;
+
+    }
+
+    /**
+     * Records a successful call.
+     */
+    public synchronized void onSuccess() {
+
+        if(state == State.HALF_OPEN) {
+
+            if(++probesSucceeded >= halfOpenCalls) {
+                close();
+            }
+
+        } else if(state == State.CLOSED) {
+
+            record(false);
+
+        }
+
+    }
+
+    /**
+     * Records a call whose outcome says nothing about the USPTO API's health: one that was cancelled before it
+     * finished, or one that failed because of the request or the adapter, such as a client error or a response that
+     * couldn't be read. An ignored probe frees its place for another one.
+     */
+    public synchronized void onIgnored() {
+
+        if(state == State.HALF_OPEN && probesStarted > probesSucceeded) {
+            probesStarted--;
+        }
+
+    }
+
+    /**
+     * Records a failed call.
+     */
+    public synchronized void onFailure() {
+
+        if(state == State.HALF_OPEN) {
+
+            open();
+
+        } else if(state == State.CLOSED) {
+
+            record(true);
+
+            if(windowCount >= minimumCalls && windowFailures >= failureRateThreshold * windowCount) {
+                open();
+            }
+
+        }
+
+    }
+
+    /**
+     * Gets the state of the breaker.
+     * @return The {@link State}.
+     */
+    public synchronized State getState() {
+
+        return state;
+
+    }
+
+    /**
+     * Gets the number of calls rejected because the breaker wasn't closed.
+     * @return The number of rejected calls.
+     */
+    public synchronized long getRejectedCount() {
+
+        return rejectedCount;
+
+    }
+
+    /**
+     * Adds an outcome to the window, replacing the oldest one once the window is full.
+     * @param failure Whether the call failed.
+     */
+    private void record(final boolean failure) {
+
+        if(windowCount == window.length) {
+
+            if(window[windowIndex]) {
+                windowFailures--;
+            }
+
+        } else {
+
+            windowCount++;
+
+        }
+
+        window[windowIndex] = failure;
+        windowIndex = (windowIndex + 1) % window.length;
+
+        if(failure) {
+            windowFailures++;
+        }
+
+    }
+
+    /**
+     * Opens the breaker, starting the time calls fail fast for.
+     */
+    private void open() {
+
+        state = State.OPEN;
+        openedTime = System.nanoTime();
+
+    }
+
+    /**
+     * Closes the breaker with an empty window.
+     */
+    private void close() {
+
+        state = State.CLOSED;
+        windowIndex = 0;
+        windowCount = 0;
+        windowFailures = 0;
+
+    }
+
+}
@@ -0,0 +1,155 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.uspto.resilience;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Limits the number of USPTO calls in flight and adapts the limit with AIMD (additive increase, multiplicative decrease).
+ * <p>
+ * A fast, successful call made while the limit is in use grows the limit by one. A failed call or one slower than the latency threshold cuts the limit by the
+ * backoff ratio. Only calls that started after the last cut can cut it again, so a burst of slow calls that were
+ * already in flight counts as one signal instead of driving the limit straight to the minimum.
+ * Calls over the limit are rejected rather than queued so they don't add to the upstream's backlog.
+ */
+@Component
+@ConditionalOnProperty(name = "quepid.backend", havingValue = "uspto", matchIfMissing = true)
+public class ConcurrencyLimiter {
+
+    private final boolean enabled;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+
+    private double limit;
+    private int inFlight;
+    private long lastDecreaseTime;
+    private long rejectedCount;
+
+    public ConcurrencyLimiter(@Value("${uspto.limiter.enabled:true}") boolean enabled,
+                              @Value("${uspto.limiter.initial-limit:32}") int initialLimit,
+                              @Value("${uspto.limiter.min-limit:4}") int minLimit,
+                              @Value("${uspto.limiter.max-limit:256}") int maxLimit,
+                              @Value("${uspto.limiter.latency-threshold:5s}") Duration latencyThreshold,
+                              @Value("${uspto.limiter.backoff-ratio:0.9}") double backoffRatio) {
+
+        this.enabled = enabled;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.lastDecreaseTime = System.nanoTime();
+
+    }
+
+    /**
+     * Takes a slot for a call if the limit allows it. A successful acquire must be followed by
+     * {@link #release(long, boolean)} or {@link #cancel()}.
+     * @return <code>true</code> if the call can go ahead.
+     */
+    public synchronized boolean tryAcquire() {
+
+        if(enabled && inFlight >= (int) limit) {
+            rejectedCount++;
+            return false;
+        }
+
+        inFlight++;
+        return true;
+
+    }
+
+    /**
+     * Gives back the slot of a call that completed and adjusts the limit from its outcome.
+     * @param startTime When the call started, from {@link System#nanoTime()}.
+     * @param success Whether the call succeeded.
+     */
+    public synchronized void release(final long startTime, final boolean success) {
+
+        inFlight--;
+
+        final long now = System.nanoTime();
+
+        if(!success || now - startTime > latencyThresholdNanos) {
+
+            if(startTime - lastDecreaseTime > 0) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+                lastDecreaseTime = now;
+            }
+
+        } else if(inFlight * 2 >= (int) limit) {
+
+            // Only grow the limit while it's actually being used, otherwise a quiet period would leave it far too high.
+            limit = Math.min(maxLimit, limit + 1);
+
+        }
+
+    }
+
+    /**
+     * Gives back the slot of a call that was never made.
+     */
+    public synchronized void cancel() {
+
+        inFlight--;
+
+    }
+
+    /**
+     * Gets the current limit on calls in flight.
+     * @return The limit.
+     */
+    public synchronized int getLimit() {
+
+        return (int) limit;
+
+    }
+
+    /**
+     * Gets the number of calls in flight.
+     * @return The number of calls.
+     */
+    public synchronized int getInFlight() {
+
+        return inFlight;
+
+    }
+
+    /**
+     * Gets the number of calls rejected because the limit was reached.
+     * @return The number of rejected calls.
+     */
+    public synchronized long getRejectedCount() {
+
+        return rejectedCount;
+
+    }
+
+}
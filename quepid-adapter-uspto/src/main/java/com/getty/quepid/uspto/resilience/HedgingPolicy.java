@@ -0,0 +1,199 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.uspto.resilience;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides when a slow USPTO call gets a hedged duplicate.
+ * <p>
+ * The latencies of the last <code>window-size</code> successful calls are kept for each kind of call, and a call that
+ * hasn't returned after their <code>percentile</code> latency is hedged. The delay adapts as the USPTO API speeds up or
+ * slows down, so only about the slowest <code>1 - percentile</code> of the calls are duplicated. Calls aren't hedged until
+ * <code>min-samples</code> latencies have been seen.
+ */
+@Component
+@ConditionalOnProperty(name = "quepid.backend", havingValue = "uspto", matchIfMissing = true)
+public class HedgingPolicy {
+
+    private final boolean enabled;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final int windowSize;
+    private final int minSamples;
+    private final Map<String, LatencyWindow> windows = new ConcurrentHashMap<>();
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    public HedgingPolicy(@Value("${uspto.hedging.enabled:true}") boolean enabled,
+                         @Value("${uspto.hedging.percentile:0.95}") double percentile,
+                         @Value("${uspto.hedging.min-delay:50ms}") Duration minDelay,
+                         @Value("${uspto.hedging.window-size:1000}") int windowSize,
+                         @Value("${uspto.hedging.min-samples:50}") int minSamples) {
+
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minDelayNanos = minDelay.toNanos();
+        this.windowSize = windowSize;
+        this.minSamples = Math.min(minSamples, windowSize);
+
+        this.scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            final Thread thread = new Thread(runnable, "uspto-hedging");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Most hedges are cancelled because the call returned in time, so don't leave them in the queue.
+        this.scheduler.setRemoveOnCancelPolicy(true);
+
+    }
+
+    @PreDestroy
+    public void close() {
+
+        scheduler.shutdownNow();
+
+    }
+
+    /**
+     * Records the latency of a successful call.
+     * @param callName The kind of call.
+     * @param latencyNanos The latency in nanoseconds.
+     */
+    public void record(final String callName, final long latencyNanos) {
+
+        if(enabled) {
+            windows.computeIfAbsent(callName, name -> new LatencyWindow(windowSize)).record(latencyNanos);
+        }
+
+    }
+
+    /**
+     * Schedules a hedge for a call that has just been made.
+     * @param callName The kind of call.
+     * @param hedge Makes the hedged call.
+     * @return The scheduled hedge, to cancel when the call returns, or <code>null</code> if the call won't be hedged.
+     */
+    public ScheduledFuture<?> schedule(final String callName, final Runnable hedge) {
+
+        final long delayNanos = getDelayNanos(callName);
+
+        if(delayNanos < 0) {
+            return null;
+        }
+
+        return scheduler.schedule(hedge, delayNanos, TimeUnit.NANOSECONDS);
+
+    }
+
+    /**
+     * Gets how long a call waits before it is hedged.
+     * @param callName The kind of call.
+     * @return The delay in nanoseconds, or -1 if calls of this kind aren't hedged yet.
+     */
+    public long getDelayNanos(final String callName) {
+
+        final LatencyWindow window = windows.get(callName);
+
+        if(!enabled || window == null) {
+            return -1;
+        }
+
+        final long delayNanos = window.getPercentile(percentile, minSamples);
+
+        return delayNanos < 0 ? -1 : Math.max(minDelayNanos, delayNanos);
+
+    }
+
+    /**
+     * A ring buffer of the latest latencies, with the percentile worked out again every tenth of a window.
+     */
+    private static final class LatencyWindow {
+
+        private final long[] latencies;
+        private final int recomputeInterval;
+        private int index;
+        private int count;
+        private int sinceRecompute;
+        private long cachedValue = -1;
+
+        private LatencyWindow(final int size) {
+
+            this.latencies = new long[size];
+            this.recomputeInterval = Math.max(1, size / 10);
+
+        }
+
+        /**
+         * Adds a latency, replacing the oldest one once the window is full.
+         * @param latencyNanos The latency in nanoseconds.
+         */
+        private synchronized void record(final long latencyNanos) {
+
+            latencies[index] = latencyNanos;
+            index = (index + 1) % latencies.length;
+            count = Math.min(count + 1, latencies.length);
+            sinceRecompute++;
+
+        }
+
+        /**
+         * Gets a percentile of the latencies in the window.
+         * @param percentile The percentile, from 0 to 1.
+         * @param minSamples The number of latencies needed for a meaningful percentile.
+         * @return The latency in nanoseconds, or -1 if there are too few latencies.
+         */
+        private synchronized long getPercentile(final double percentile, final int minSamples) {
+
+            if(count < minSamples) {
+                return -1;
+            }
+
+            if(cachedValue < 0 || sinceRecompute >= recomputeInterval) {
+
+                final long[] sorted = Arrays.copyOf(latencies, count);
+                Arrays.sort(sorted);
+
+                cachedValue = sorted[Math.min(count - 1, (int) (percentile * count))];
+                sinceRecompute = 0;
+
+            }
+
+            return cachedValue;
+
+        }
+
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.uspto.resilience;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounds the extra calls made to the USPTO API by retries and hedged requests.
+ * <p>
+ * Every call deposits <code>ratio</code> of a token and the balance also grows by <code>min-per-second</code>
+ * tokens a second, up to <code>max-balance</code>. Each extra call withdraws one token, so extra calls can add at most
+ * about <code>ratio</code> to the load plus a small trickle, even when every call is failing.
+ */
+@Component
+@ConditionalOnProperty(name = "quepid.backend", havingValue = "uspto", matchIfMissing = true)
+public class RetryBudget {
+
+    private final double ratio;
+    private final double minPerSecond;
+    private final double maxBalance;
+
+    private double balance;
+    private long lastRefillTime;
+    private long withdrawnCount;
+    private long rejectedCount;
+
+    public RetryBudget(@Value("${uspto.retry-budget.ratio:0.1}") double ratio,
+                       @Value("${uspto.retry-budget.min-per-second:1}") double minPerSecond,
+                       @Value("${uspto.retry-budget.max-balance:20}") double maxBalance) {
+
+        this.ratio = ratio;
+        this.minPerSecond = minPerSecond;
+        this.maxBalance = maxBalance;
+        this.balance = maxBalance;
+        this.lastRefillTime = System.nanoTime();
+
+    }
+
+    /**
+     * Records a call, adding its share to the budget.
+     */
+    public synchronized void onCall() {
+
+        balance = Math.min(maxBalance, balance + ratio);
+
+    }
+
+    /**
+     * Takes a token for an extra call if the budget has one.
+     * @return <code>true</code> if the extra call can be made.
+     */
+    public synchronized boolean tryWithdraw() {
+
+        final long now = System.nanoTime();
+
+        balance = Math.min(maxBalance, balance + minPerSecond * (now - lastRefillTime) / 1e9);
+        lastRefillTime = now;
+
+        if(balance < 1) {
+            rejectedCount++;
+            return false;
+        }
+
+        balance--;
+        withdrawnCount++;
+        return true;
+
+    }
+
+    /**
+     * Gets the number of tokens left.
+     * @return The balance.
+     */
+    public synchronized double getBalance() {
+
+        return balance;
+
+    }
+
+    /**
+     * Gets the number of extra calls the budget allowed.
+     * @return The number of extra calls.
+     */
+    public synchronized long getWithdrawnCount() {
+
+        return withdrawnCount;
+
+    }
+
+    /**
+     * Gets the number of extra calls that weren't made because the budget was spent.
+     * @return The number of rejected calls.
+     */
+    public synchronized long getRejectedCount() {
+
+        return rejectedCount;
+
+    }
+
+}
@@ -0,0 +1,71 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.uspto.resilience;
+
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Tells the failures that are down to the USPTO API or the network to it apart from the ones that aren't.
+ */
+public final class UpstreamFailures {
+
+    // OkHttp reports reset HTTP/2 streams and connections with classes outside its public API. They are matched by
+    // name, so an OkHttp upgrade that moves them only stops them being recognized instead of breaking the build.
+    private static final Set<String> OKHTTP_CONNECTION_FAILURES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "okhttp3.internal.http2.StreamResetException",
+            "okhttp3.internal.http2.ConnectionShutdownException")));
+
+    private UpstreamFailures() {
+    }
+
+    /**
+     * Checks whether a call failed because of the USPTO API or the network to it, in a way that could pass.
+     * Server errors, timeouts, rate limiting, successful responses without a body, and connection failures such as
+     * refused or reset connections, read timeouts and reset HTTP/2 streams are. Client errors, responses that couldn't
+     * be read, cancelled calls and calls that were never made aren't: making them again would fail the same way, and
+     * they say nothing about the USPTO API's health.
+     * @param ex The failure.
+     * @return <code>true</code> if the USPTO API or the network is to blame.
+     */
+    public static boolean isTransient(final Throwable ex) {
+
+        if(ex instanceof UpstreamResponseException) {
+            return ((UpstreamResponseException) ex).isRetryable();
+        }
+
+        // SocketException covers refused, reset and unreachable connections.
+        return ex instanceof SocketTimeoutException
+                || ex instanceof SocketException
+                || ex instanceof UnknownHostException
+                || (ex != null && OKHTTP_CONNECTION_FAILURES.contains(ex.getClass().getName()));
+
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.uspto.resilience;
+
+import java.io.IOException;
+
+/**
+ * Thrown when the USPTO API answers a call with an error status or without a body.
+ */
+public class UpstreamResponseException extends IOException {
+
+    private final int code;
+
+    public UpstreamResponseException(String message, int code) {
+
+        super(message);
+        this.code = code;
+
+    }
+
+    /**
+     * Gets the HTTP status code of the response.
+     * @return The status code.
+     */
+    public int getCode() {
+
+        return code;
+
+    }
+
+    /**
+     * Checks whether the same call could succeed if it was made again.
+     * Server errors, timeouts, rate limiting and successful responses without a body are worth retrying, other client errors aren't.
+     * @return <code>true</code> if the call can be retried.
+     */
+    public boolean isRetryable() {
+
+        return code >= 500 || code == 408 || code == 429 || (code >= 200 && code < 300);
+
+    }
+
+}
@@ -0,0 +1,458 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.uspto.resilience;
+
+import com.getty.quepid.model.search.Futures;
+import com.getty.quepid.model.search.Priority;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shares the USPTO API's rate limit between interactive Quepid requests and background work such as case evaluations
+ * and cache warm-ups, so background work can't make Quepid slow.
+ * <p>
+ * Every USPTO call takes a token from a bucket that holds up to <code>burst</code> tokens and refills at
+ * <code>rate</code> tokens a second. Calls that can't have a token yet wait in a queue for their {@link Priority}, and
+ * queued calls are started strictly in priority order, oldest first. Background calls only take tokens while more
+ * than the <code>interactive-reserve</code> share of the bucket is left, so interactive calls find tokens waiting even
+ * when background work is using up the rest, and only while fewer calls are in flight than the
+ * <code>background-max-in-flight</code> share of the {@link ConcurrencyLimiter}'s limit, so they can't fill it.
+ * <p>
+ * Identical calls share a {@link Ticket}, which is raised to the priority of its most urgent caller, moving its
+ * queued calls forward with it.
+ */
+@Component
+@ConditionalOnProperty(name = "quepid.backend", havingValue = "uspto", matchIfMissing = true)
+public class UpstreamScheduler {
+
+    // How often to check again for background calls waiting on the calls in flight rather than on tokens.
+    private static final long IN_FLIGHT_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final boolean enabled;
+    private final double rate;
+    private final double burst;
+    private final double reserve;
+    private final double backgroundMaxInFlight;
+    private final int maxQueueSize;
+    private final ConcurrencyLimiter concurrencyLimiter;
+    private final Map<Priority, Deque<Waiter>> queues = new EnumMap<>(Priority.class);
+    private final Map<Priority, long[]> rejectedCounts = new EnumMap<>(Priority.class);
+    private final ScheduledThreadPoolExecutor dispatcher;
+
+    private double tokens;
+    private long lastRefillTime;
+    private long promotedCount;
+    private ScheduledFuture<?> nextDrain;
+
+    public UpstreamScheduler(ConcurrencyLimiter concurrencyLimiter,
+                             @Value("${uspto.scheduler.enabled:true}") boolean enabled,
+                             @Value("${uspto.scheduler.rate:100}") double rate,
+                             @Value("${uspto.scheduler.burst:100}") double burst,
+                             @Value("${uspto.scheduler.interactive-reserve:0.2}") double interactiveReserve,
+                             @Value("${uspto.scheduler.background-max-in-flight:0.5}") double backgroundMaxInFlight,
+                             @Value("${uspto.scheduler.max-queue-size:1000}") int maxQueueSize) {
+
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.enabled = enabled && rate > 0;
+        this.rate = rate;
+        this.burst = Math.max(1, burst);
+        this.reserve = this.burst * interactiveReserve;
+        this.backgroundMaxInFlight = backgroundMaxInFlight;
+        this.maxQueueSize = maxQueueSize;
+        this.tokens = this.burst;
+        this.lastRefillTime = System.nanoTime();
+
+        for(final Priority priority : Priority.values()) {
+            queues.put(priority, new ArrayDeque<>());
+            rejectedCounts.put(priority, new long[1]);
+        }
+
+        this.dispatcher = new ScheduledThreadPoolExecutor(1, runnable -> {
+            final Thread thread = new Thread(runnable, "uspto-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.dispatcher.setRemoveOnCancelPolicy(true);
+
+    }
+
+    @PreDestroy
+    public void close() {
+
+        dispatcher.shutdownNow();
+
+    }
+
+    /**
+     * Creates the {@link Ticket} for a new call and whatever hedges and retries it makes.
+     * @param priority The {@link Priority} of the caller.
+     * @return The {@link Ticket}.
+     */
+    public Ticket newTicket(final Priority priority) {
+
+        return new Ticket(priority);
+
+    }
+
+    /**
+     * Waits for a token to make a call. The call is started at once when a token is free and nothing more urgent is
+     * waiting. Cancelling the returned future while it waits gives up its place in the queue.
+     * @param ticket The {@link Ticket} of the call.
+     * @return Completes when the call can be made, or fails with an {@link UpstreamUnavailableException} when too many
+     * calls of its priority are already waiting.
+     */
+    public CompletableFuture<Void> acquire(final Ticket ticket) {
+
+        if(!enabled) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        synchronized (this) {
+
+            refill();
+
+            final Priority priority = ticket.priority;
+
+            if(!isQueued(priority) && canStart(priority)) {
+                tokens--;
+                return CompletableFuture.completedFuture(null);
+            }
+
+            final Deque<Waiter> queue = queues.get(priority);
+
+            if(queue.size() >= maxQueueSize) {
+                rejectedCounts.get(priority)[0]++;
+                return Futures.failed(new UpstreamUnavailableException("Too many " + priority.getTag() + " USPTO API calls waiting"));
+            }
+
+            final Waiter waiter = new Waiter(ticket);
+            queue.addLast(waiter);
+            scheduleDrain();
+
+            return waiter.future;
+
+        }
+
+    }
+
+    /**
+     * Gets the number of calls waiting for a token.
+     * @param priority The {@link Priority}.
+     * @return The number of calls waiting.
+     */
+    public synchronized int getQueued(final Priority priority) {
+
+        return queues.get(priority).size();
+
+    }
+
+    /**
+     * Gets the tokens left in the bucket.
+     * @return The number of tokens.
+     */
+    public synchronized double getTokens() {
+
+        refill();
+
+        return tokens;
+
+    }
+
+    /**
+     * Gets the number of calls turned away because too many calls of their priority were waiting.
+     * @param priority The {@link Priority}.
+     * @return The number of rejected calls.
+     */
+    public synchronized long getRejectedCount(final Priority priority) {
+
+        return rejectedCounts.get(priority)[0];
+
+    }
+
+    /**
+     * Gets the number of tickets raised to a more urgent priority by a caller sharing their call.
+     * @return The number of promotions.
+     */
+    public synchronized long getPromotedCount() {
+
+        return promotedCount;
+
+    }
+
+    /**
+     * Raises a ticket to a more urgent priority, moving its waiting calls to the back of that priority's queue.
+     * @param ticket The {@link Ticket}.
+     * @param priority The new {@link Priority}. A priority no more urgent than the ticket's is ignored.
+     */
+    private synchronized void raise(final Ticket ticket, final Priority priority) {
+
+        if(!priority.isMoreUrgentThan(ticket.priority)) {
+            return;
+        }
+
+        final Iterator<Waiter> waiters = queues.get(ticket.priority).iterator();
+        ticket.priority = priority;
+        promotedCount++;
+
+        while(waiters.hasNext()) {
+
+            final Waiter waiter = waiters.next();
+
+            if(waiter.ticket == ticket) {
+                waiters.remove();
+                queues.get(priority).addLast(waiter);
+            }
+
+        }
+
+        if(enabled && isQueued(priority)) {
+            scheduleDrain();
+        }
+
+    }
+
+    /**
+     * Starts as many waiting calls as the tokens and the calls in flight allow, most urgent first.
+     */
+    private void drain() {
+
+        final List<CompletableFuture<Void>> started = new ArrayList<>();
+
+        synchronized (this) {
+
+            nextDrain = null;
+            refill();
+
+            drain:
+            for(final Priority priority : Priority.values()) {
+
+                final Deque<Waiter> queue = queues.get(priority);
+
+                while(!queue.isEmpty()) {
+
+                    // Calls cancelled while they waited, such as hedges whose call has returned, don't need a token.
+                    if(queue.peekFirst().future.isDone()) {
+                        queue.pollFirst();
+                        continue;
+                    }
+
+                    // Less urgent calls wait too, so a call is never overtaken.
+                    if(!canStart(priority)) {
+                        break drain;
+                    }
+
+                    tokens--;
+                    started.add(queue.pollFirst().future);
+
+                }
+
+            }
+
+            // Checking the least urgent priority checks them all.
+            if(isQueued(Priority.PREFETCH)) {
+                scheduleDrain();
+            }
+
+        }
+
+        // Completing starts the calls, which is done outside the lock.
+        for(final CompletableFuture<Void> future : started) {
+
+            if(!future.complete(null)) {
+                refund();
+            }
+
+        }
+
+    }
+
+    /**
+     * Schedules the next drain for when the most urgent waiting call could start, unless one is already due by then.
+     */
+    private void scheduleDrain() {
+
+        Priority mostUrgent = null;
+
+        for(final Priority priority : Priority.values()) {
+
+            if(!queues.get(priority).isEmpty()) {
+                mostUrgent = priority;
+                break;
+            }
+
+        }
+
+        if(mostUrgent == null) {
+            return;
+        }
+
+        final double tokensNeeded = getTokensNeeded(mostUrgent) - tokens;
+        final long delayNanos = tokensNeeded > 0 ? (long) Math.ceil(tokensNeeded / rate * 1e9) : IN_FLIGHT_POLL_NANOS;
+
+        if(nextDrain != null) {
+
+            if(nextDrain.getDelay(TimeUnit.NANOSECONDS) <= delayNanos) {
+                return;
+            }
+
+            nextDrain.cancel(false);
+
+        }
+
+        nextDrain = dispatcher.schedule(this::drain, delayNanos, TimeUnit.NANOSECONDS);
+
+    }
+
+    /**
+     * Checks whether calls of a priority, or a more urgent one, are waiting.
+     * @param priority The {@link Priority}.
+     * @return <code>true</code> if a call of the same or a more urgent priority is waiting.
+     */
+    private boolean isQueued(final Priority priority) {
+
+        for(final Priority other : Priority.values()) {
+
+            if(!queues.get(other).isEmpty()) {
+                return true;
+            }
+
+            if(other == priority) {
+                break;
+            }
+
+        }
+
+        return false;
+
+    }
+
+    /**
+     * Checks whether a call of a priority can start now.
+     * @param priority The {@link Priority}.
+     * @return <code>true</code> if it can have a token.
+     */
+    private boolean canStart(final Priority priority) {
+
+        if(tokens < getTokensNeeded(priority)) {
+            return false;
+        }
+
+        return priority == Priority.INTERACTIVE
+                || concurrencyLimiter.getInFlight() < concurrencyLimiter.getLimit() * backgroundMaxInFlight;
+
+    }
+
+    /**
+     * Gets the tokens the bucket must hold for a call of a priority to take one.
+     * @param priority The {@link Priority}.
+     * @return The number of tokens.
+     */
+    private double getTokensNeeded(final Priority priority) {
+
+        return priority == Priority.INTERACTIVE ? 1 : 1 + reserve;
+
+    }
+
+    /**
+     * Adds the tokens earned since the last refill.
+     */
+    private void refill() {
+
+        final long now = System.nanoTime();
+
+        tokens = Math.min(burst, tokens + rate * (now - lastRefillTime) / 1e9);
+        lastRefillTime = now;
+
+    }
+
+    /**
+     * Puts back the token of a call that was cancelled just as it was started.
+     */
+    private synchronized void refund() {
+
+        tokens = Math.min(burst, tokens + 1);
+
+    }
+
+    /**
+     * The priority of a call, shared by the hedges and retries it makes and by the callers coalesced onto it.
+     */
+    public final class Ticket {
+
+        private volatile Priority priority;
+
+        private Ticket(final Priority priority) {
+
+            this.priority = priority;
+
+        }
+
+        public Priority getPriority() {
+            return priority;
+        }
+
+        /**
+         * Raises the ticket to a more urgent priority, for a more urgent caller that is sharing the call.
+         * @param priority The {@link Priority} of the caller.
+         */
+        public void raise(final Priority priority) {
+
+            UpstreamScheduler.this.raise(this, priority);
+
+        }
+
+    }
+
+    /**
+     * A call waiting for a token.
+     */
+    private static final class Waiter {
+
+        private final Ticket ticket;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private Waiter(final Ticket ticket) {
+
+            this.ticket = ticket;
+
+        }
+
+    }
+
+}
@@ -0,0 +1,270 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.uspto.services;
+
+import com.getty.quepid.model.search.Snippets;
+import com.getty.quepid.model.solr.FieldList;
+import com.getty.quepid.uspto.model.Grant;
+import com.getty.quepid.uspto.model.GrantPage;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads grants from a USPTO response body as it streams in instead of binding the whole response.
+ * Only the fields needed to build a {@link com.getty.quepid.model.solr.Doc} are kept and every other
+ * field is skipped without being turned into a String.
+ */
+public class GrantReader {
+
+    private final int maxDescriptionLength;
+
+    /**
+     * @param maxDescriptionLength The maximum number of description characters to keep, or 0 to keep them all.
+     */
+    public GrantReader(final int maxDescriptionLength) {
+
+        this.maxDescriptionLength = maxDescriptionLength;
+
+    }
+
+    /**
+     * Reads the grants from a response body and closes it.
+     * The body is either a JSON array of grants or an object wrapping the array, in <code>results</code> or
+     * <code>docs</code>, with the total number of matches in <code>recordTotalQuantity</code> or <code>numFound</code>.
+     * The wrapper may itself be nested in a <code>response</code> object.
+     * @param body The USPTO {@link ResponseBody}.
+     * @return The {@link GrantPage}.
+     */
+    public GrantPage read(final ResponseBody body) throws IOException {
+
+        return read(body, FieldList.ALL);
+
+    }
+
+    /**
+     * Reads the grants from a response body and closes it, keeping only the fields a {@link FieldList} asks for.
+     * The patent number is always kept. The title and description are skipped without being read into a String
+     * when they aren't asked for.
+     * <p>
+     * When descriptions are shortened, each <code>descriptionText</code> value is cut to one character more than
+     * the description's maximum length as it streams in, so a long description is never read into a String whole.
+     * The extra character lets {@link Snippets} tell that the description was cut. Other fields are read whole.
+     * @param body The USPTO {@link ResponseBody}.
+     * @param fields The {@link FieldList}.
+     * @return The {@link GrantPage}.
+     */
+    public GrantPage read(final ResponseBody body, final FieldList fields) throws IOException {
+
+        final Reader json = maxDescriptionLength > 0
+                ? new TruncatingJsonReader(body.charStream(), "descriptionText", maxDescriptionLength + 1)
+                : body.charStream();
+
+        try (JsonReader reader = new JsonReader(json)) {
+
+            if(reader.peek() == JsonToken.BEGIN_ARRAY) {
+                return new GrantPage(readGrants(reader, fields), GrantPage.UNKNOWN_TOTAL);
+            }
+
+            return readWrapper(reader, fields);
+
+        }
+
+    }
+
+    /**
+     * Streams every grant in a USPTO response or bulk data file to a consumer, one at a time, without holding the
+     * others in memory. The JSON can have any of the shapes {@link #read(ResponseBody)} accepts.
+     * Every field a {@link com.getty.quepid.model.solr.Doc} can be built from is read, plus the abstract.
+     * @param json The JSON, which is closed once it has been read.
+     * @param consumer Takes each {@link Grant}.
+     */
+    public void stream(final Reader json, final Consumer<Grant> consumer) throws IOException {
+
+        try (JsonReader reader = new JsonReader(json)) {
+
+            if(reader.peek() == JsonToken.BEGIN_ARRAY) {
+                streamGrants(reader, consumer);
+            } else {
+                streamWrapper(reader, consumer);
+            }
+
+        }
+
+    }
+
+    private void streamWrapper(final JsonReader reader, final Consumer<Grant> consumer) throws IOException {
+
+        reader.beginObject();
+
+        while (reader.hasNext()) {
+
+            switch (reader.nextName()) {
+                case "results":
+                case "docs":
+                    streamGrants(reader, consumer);
+                    break;
+                case "response":
+                    streamWrapper(reader, consumer);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+
+        }
+
+        reader.endObject();
+
+    }
+
+    private void streamGrants(final JsonReader reader, final Consumer<Grant> consumer) throws IOException {
+
+        reader.beginArray();
+
+        while (reader.hasNext()) {
+            consumer.accept(readGrant(reader, FieldList.ALL, true));
+        }
+
+        reader.endArray();
+
+    }
+
+    private GrantPage readWrapper(final JsonReader reader, final FieldList fields) throws IOException {
+
+        List<Grant> grants = new ArrayList<>();
+        int total = GrantPage.UNKNOWN_TOTAL;
+
+        reader.beginObject();
+
+        while (reader.hasNext()) {
+
+            switch (reader.nextName()) {
+                case "results":
+                case "docs":
+                    grants = readGrants(reader, fields);
+                    break;
+                case "recordTotalQuantity":
+                case "numFound":
+                    // Some responses give the count as a string.
+                    total = Integer.parseInt(reader.nextString().trim());
+                    break;
+                case "response":
+                    final GrantPage page = readWrapper(reader, fields);
+                    grants = page.getGrants();
+                    total = page.getTotal();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+
+        }
+
+        reader.endObject();
+
+        return new GrantPage(grants, total);
+
+    }
+
+    private List<Grant> readGrants(final JsonReader reader, final FieldList fields) throws IOException {
+
+        final List<Grant> grants = new ArrayList<>();
+
+        reader.beginArray();
+
+        while (reader.hasNext()) {
+            grants.add(readGrant(reader, fields, false));
+        }
+
+        reader.endArray();
+
+        return grants;
+
+    }
+
+    private Grant readGrant(final JsonReader reader, final FieldList fields, final boolean includeAbstract) throws IOException {
+
+        final Grant grant = new Grant();
+
+        reader.beginObject();
+
+        while (reader.hasNext()) {
+
+            switch (reader.nextName()) {
+                case "patentNumber":
+                    grant.setPatentNumber(nextString(reader));
+                    break;
+                case "inventionTitle":
+                    if(fields.includesTitle()) {
+                        grant.setInventionTitle(nextString(reader));
+                    } else {
+                        reader.skipValue();
+                    }
+                    break;
+                case "abstractText":
+                    if(includeAbstract) {
+                        grant.setAbstractText(nextString(reader));
+                    } else {
+                        reader.skipValue();
+                    }
+                    break;
+                case "descriptionText":
+                    if(fields.includesDescription()) {
+                        grant.setDescriptionText(Snippets.truncate(nextString(reader), maxDescriptionLength));
+                    } else {
+                        reader.skipValue();
+                    }
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+
+        }
+
+        reader.endObject();
+
+        return grant;
+
+    }
+
+    private static String nextString(final JsonReader reader) throws IOException {
+
+        if(reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+
+        return reader.nextString();
+
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.uspto.services;
+
+import com.getty.quepid.model.search.Futures;
+import com.getty.quepid.uspto.resilience.UpstreamScheduler;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Makes concurrent calls for the same key share a single upstream call.
+ * The first caller for a key starts the call and every caller that arrives while it is
+ * in flight gets the same result (or exception). A call that is still waiting for the {@link UpstreamScheduler} is
+ * moved up to the priority of the most urgent caller sharing it.
+ * @param <K> The key type.
+ * @param <V> The result type.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, Flight<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Starts the call for the key unless one is already in flight, in which case its result is used.
+     * @param key The key identifying identical calls.
+     * @param ticket The {@link UpstreamScheduler.Ticket} the call is made with, if it is started.
+     * @param call Starts the upstream call.
+     * @return The result of the call.
+     */
+    public CompletableFuture<V> execute(final K key, final UpstreamScheduler.Ticket ticket, final Supplier<CompletableFuture<V>> call) {
+
+        final Flight<V> flight = new Flight<>(ticket);
+        final Flight<V> existingFlight = inFlight.putIfAbsent(key, flight);
+
+        if(existingFlight != null) {
+
+            coalesced.increment();
+            existingFlight.ticket.raise(ticket.getPriority());
+
+            // A copy, so one caller cancelling can't affect the others.
+            return existingFlight.future.thenApply(Function.identity());
+
+        }
+
+        calls.increment();
+
+        CompletableFuture<V> upstream;
+
+        try {
+            upstream = call.get();
+        } catch (RuntimeException ex) {
+            upstream = Futures.failed(ex);
+        }
+
+        upstream.whenComplete((result, ex) -> {
+
+            inFlight.remove(key, flight);
+
+            if(ex != null) {
+                flight.future.completeExceptionally(ex);
+            } else {
+                flight.future.complete(result);
+            }
+
+        });
+
+        return flight.future.thenApply(Function.identity());
+
+    }
+
+    /**
+     * Gets the number of calls that were actually made.
+     * @return The number of upstream calls.
+     */
+    public long getCallCount() {
+
+        return calls.sum();
+
+    }
+
+    /**
+     * Gets the number of calls that shared another caller's in-flight call instead of making their own.
+     * @return The number of coalesced calls.
+     */
+    public long getCoalescedCount() {
+
+        return coalesced.sum();
+
+    }
+
+    /**
+     * A call in flight and the ticket it was made with.
+     */
+    private static final class Flight<V> {
+
+        private final UpstreamScheduler.Ticket ticket;
+        private final CompletableFuture<V> future = new CompletableFuture<>();
+
+        private Flight(final UpstreamScheduler.Ticket ticket) {
+
+            this.ticket = ticket;
+
+        }
+
+    }
+
+}
@@ -0,0 +1,190 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.uspto.services;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Cuts the values of one field in a JSON stream down to a maximum number of characters as they are read, so a parser
+ * reading through it never builds the whole of a very long value. Every other string, including the field names, is
+ * passed through whole. Values are only cut between characters, never inside an escape sequence, so the JSON stays
+ * valid. Characters are counted as they decode, so an escape sequence is one.
+ */
+final class TruncatingJsonReader extends Reader {
+
+    /**
+     * Where the reader is in the JSON.
+     */
+    private enum State {
+
+        OUTSIDE_STRING,
+        IN_STRING,
+        ESCAPE,
+        UNICODE_ESCAPE
+
+    }
+
+    private final Reader in;
+    private final String fieldName;
+    private final int maxLength;
+
+    private State state = State.OUTSIDE_STRING;
+    private int length;
+    private boolean dropping;
+    private int hexDigitsLeft;
+
+    // How much of the field name the current string has matched, -1 once it can't be the name.
+    private int nameMatched;
+    private boolean lastStringWasName;
+    private boolean valueNext;
+    private boolean cutting;
+
+    /**
+     * @param in The JSON.
+     * @param fieldName The name of the field whose values are cut.
+     * @param maxLength The maximum number of characters to keep in each value of the field.
+     */
+    TruncatingJsonReader(final Reader in, final String fieldName, final int maxLength) {
+
+        this.in = in;
+        this.fieldName = fieldName;
+        this.maxLength = maxLength;
+
+    }
+
+    @Override
+    public int read(final char[] buffer, final int offset, final int count) throws IOException {
+
+        while (true) {
+
+            final int read = in.read(buffer, offset, count);
+
+            if(read <= 0) {
+                return read;
+            }
+
+            // Drop the characters past the end of each cut value in place.
+            int kept = offset;
+
+            for (int i = offset; i < offset + read; i++) {
+
+                if(keep(buffer[i])) {
+                    buffer[kept++] = buffer[i];
+                }
+
+            }
+
+            if(kept > offset) {
+                return kept - offset;
+            }
+
+        }
+
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        in.close();
+
+    }
+
+    /**
+     * Moves past a character.
+     * @param c The character.
+     * @return <code>true</code> if it is kept, <code>false</code> if it is past the end of a value that has been cut.
+     */
+    private boolean keep(final char c) {
+
+        switch (state) {
+            case OUTSIDE_STRING:
+                if(c == '"') {
+                    // A string straight after the field name's colon is its value.
+                    state = State.IN_STRING;
+                    cutting = valueNext;
+                    valueNext = false;
+                    length = 0;
+                    dropping = false;
+                    nameMatched = 0;
+                } else if(c == ':') {
+                    valueNext = lastStringWasName;
+                } else if(!Character.isWhitespace(c)) {
+                    valueNext = false;
+                }
+                return true;
+            case IN_STRING:
+                if(c == '"') {
+                    state = State.OUTSIDE_STRING;
+                    lastStringWasName = nameMatched == fieldName.length();
+                    return true;
+                }
+                match(c);
+                if(c == '\\') {
+                    state = State.ESCAPE;
+                }
+                if(!cutting) {
+                    return true;
+                }
+                // Every character, or the start of an escape sequence, is one more character of the value.
+                dropping = length >= maxLength;
+                if(!dropping) {
+                    length++;
+                }
+                return !dropping;
+            case ESCAPE:
+                match(c);
+                if(c == 'u') {
+                    state = State.UNICODE_ESCAPE;
+                    hexDigitsLeft = 4;
+                } else {
+                    state = State.IN_STRING;
+                }
+                return !dropping;
+            default:
+                match(c);
+                if(--hexDigitsLeft == 0) {
+                    state = State.IN_STRING;
+                }
+                return !dropping;
+        }
+
+    }
+
+    /**
+     * Checks the next character of a string against the field name. Field names are matched as written, so a name
+     * with an escape sequence in it isn't recognized.
+     * @param c The character.
+     */
+    private void match(final char c) {
+
+        if(nameMatched >= 0 && nameMatched < fieldName.length() && fieldName.charAt(nameMatched) == c) {
+            nameMatched++;
+        } else {
+            nameMatched = -1;
+        }
+
+    }
+
+}
@@ -24,117 +24,782 @@ SOFTWARE.
 package com.getty.quepid.uspto.services;
 
 import com.getty.quepid.model.search.AbstractSearchService;
+import com.getty.quepid.model.search.Futures;
+import com.getty.quepid.model.search.Priority;
+import com.getty.quepid.uspto.cache.DocumentCache;
+import com.getty.quepid.uspto.cache.DocumentInterner;
+import com.getty.quepid.uspto.cache.DocumentStore;
+import com.getty.quepid.uspto.cache.SearchCache;
 import com.getty.quepid.uspto.model.Grant;
+import com.getty.quepid.uspto.model.GrantPage;
 import com.getty.quepid.uspto.model.UsptoSearchRequest;
 import com.getty.quepid.uspto.model.UsptoSearchResponse;
+import com.getty.quepid.uspto.resilience.CircuitBreaker;
+import com.getty.quepid.uspto.resilience.ConcurrencyLimiter;
+import com.getty.quepid.uspto.resilience.HedgingPolicy;
+import com.getty.quepid.uspto.resilience.RetryBudget;
+import com.getty.quepid.uspto.resilience.UpstreamFailures;
+import com.getty.quepid.uspto.resilience.UpstreamScheduler;
+import com.getty.quepid.uspto.resilience.UpstreamResponseException;
+import com.getty.quepid.uspto.resilience.UpstreamUnavailableException;
 import com.getty.quepid.model.solr.*;
-import com.google.gson.Gson;
-import okhttp3.OkHttpClient;
-import okhttp3.logging.HttpLoggingInterceptor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import okhttp3.ResponseBody;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
-import retrofit2.Retrofit;
-import retrofit2.converter.gson.GsonConverterFactory;
+import retrofit2.Call;
+import retrofit2.Callback;
 
 import java.io.IOException;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 @Component
+@ConditionalOnProperty(name = "quepid.backend", havingValue = "uspto", matchIfMissing = true)
 public class UsptoSearchService extends AbstractSearchService<UsptoSearchRequest, UsptoSearchResponse> {
 
     private final Logger LOGGER = LoggerFactory.getLogger(UsptoSearchService.class);
 
+    private static final String NOT_FOUND = "Patent not found";
+
     private final UsptoService service;
-    private final Gson gson;
+    private final GrantReader grantReader;
+    private final GrantReader searchGrantReader;
+    private final DocumentInterner documentInterner;
+    private final DocumentCache documentCache;
+    private final DocumentStore documentStore;
+    private final ConcurrencyLimiter concurrencyLimiter;
+    private final CircuitBreaker circuitBreaker;
+    private final HedgingPolicy hedgingPolicy;
+    private final RetryBudget retryBudget;
+    private final UpstreamScheduler scheduler;
+    private final SingleFlight<String, Doc> documentFlights = new SingleFlight<>();
+    private final SearchCache searchCache;
+    private final SingleFlight<UsptoSearchRequest, Response> searchFlights = new SingleFlight<>();
+    private final int lookupMaxConcurrency;
+    private final MeterRegistry meterRegistry;
+    private final Counter notFoundCounter;
+
+    public UsptoSearchService(UsptoService service,
+                              DocumentCache documentCache,
+                              DocumentStore documentStore,
+                              SearchCache searchCache,
+                              DocumentInterner documentInterner,
+                              ConcurrencyLimiter concurrencyLimiter,
+                              CircuitBreaker circuitBreaker,
+                              HedgingPolicy hedgingPolicy,
+                              RetryBudget retryBudget,
+                              UpstreamScheduler scheduler,
+                              MeterRegistry meterRegistry,
+                              @Value("${uspto.lookup.max-concurrency:8}") int lookupMaxConcurrency,
+                              @Value("${uspto.description-max-length:10000}") int descriptionMaxLength,
+                              @Value("${uspto.search.description-max-length:1000}") int searchDescriptionMaxLength) {
+
+        this.service = service;
+        this.grantReader = new GrantReader(descriptionMaxLength);
+        this.searchGrantReader = new GrantReader(searchDescriptionMaxLength);
+        this.documentInterner = documentInterner;
+        this.documentCache = documentCache;
+        this.documentStore = documentStore;
+        this.searchCache = searchCache;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.circuitBreaker = circuitBreaker;
+        this.hedgingPolicy = hedgingPolicy;
+        this.retryBudget = retryBudget;
+        this.scheduler = scheduler;
+        this.lookupMaxConcurrency = lookupMaxConcurrency;
+        this.meterRegistry = meterRegistry;
+        this.notFoundCounter = Counter.builder("uspto.not.found")
+                .description("Patent lookups the USPTO API had no patent for.")
+                .register(meterRegistry);
 
-    public UsptoSearchService(Gson gson) {
+    }
 
-        final OkHttpClient.Builder httpClient = new OkHttpClient.Builder();
+    @Override
+    public Doc getDocument(String patentNumber) throws IOException {
 
-        final HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor();
-        loggingInterceptor.setLevel(HttpLoggingInterceptor.Level.BODY);
-        httpClient.addInterceptor(loggingInterceptor);
+        return Futures.await(getDocumentAsync(patentNumber));
 
-        final OkHttpClient client = httpClient.build();
+    }
 
-        final Retrofit retrofit = new Retrofit.Builder()
-                .baseUrl("https://developer.uspto.gov/ibd-api/")
-                .addConverterFactory(GsonConverterFactory.create())
-                .client(client)
-                .build();
+    @Override
+    public List<Doc> getDocuments(Collection<String> patentNumbers) throws IOException {
 
-        this.service = retrofit.create(UsptoService.class);
-        this.gson = gson;
+        return Futures.await(getDocumentsAsync(patentNumbers));
 
     }
 
     @Override
-    public Doc getDocument(String patentNumber) throws IOException {
+    public UsptoSearchResponse search(UsptoSearchRequest usptoSearchRequest) throws IOException {
 
-        // This will return a single doc.
-        final List<Grant> grants = service.getGrant(patentNumber).execute().body();
+        return Futures.await(searchAsync(usptoSearchRequest));
 
-        final Doc doc = new Doc(patentNumber);
+    }
 
-        // Just make sure we got a doc.
-        if(!grants.isEmpty()) {
+    @Override
+    public CompletableFuture<Doc> getDocumentAsync(String patentNumber) {
 
-            // Create a Doc from the result.
-            doc.setTitle(grants.get(0).getInventionTitle());
-            doc.setDescription(grants.get(0).getDescriptionText());
+        return getDocumentAsync(patentNumber, Priority.INTERACTIVE);
 
-        } else {
+    }
 
-            // No patent exists for this patent number.
-            LOGGER.warn("No patent found for patent number {}", patentNumber);
+    @Override
+    public CompletableFuture<Doc> getDocumentAsync(String patentNumber, Priority priority) {
 
-            doc.setTitle("Patent not found");
-            doc.setDescription("Patent not found");
+        final Doc cachedDoc = documentCache.get(patentNumber);
 
+        if(cachedDoc != null) {
+            return CompletableFuture.completedFuture(cachedDoc);
         }
 
-        return doc;
+        // Docs fetched before a restart are still in the document store (when it's enabled).
+        final Doc storedDoc = documentStore.get(patentNumber);
+
+        if(storedDoc != null) {
+            documentCache.put(storedDoc);
+            return CompletableFuture.completedFuture(storedDoc);
+        }
+
+        // Concurrent lookups of the same patent share one call to the USPTO API.
+        final UpstreamScheduler.Ticket ticket = scheduler.newTicket(priority);
+
+        return documentFlights.execute(patentNumber, ticket, () -> fetchDocument(patentNumber, ticket));
 
     }
 
     @Override
-    public UsptoSearchResponse search(UsptoSearchRequest usptoSearchRequest) throws IOException {
+    public CompletableFuture<List<Doc>> getDocumentsAsync(Collection<String> patentNumbers) {
+
+        return getDocumentsAsync(patentNumbers, Priority.INTERACTIVE);
+
+    }
+
+    @Override
+    public CompletableFuture<List<Doc>> getDocumentsAsync(Collection<String> patentNumbers, Priority priority) {
+
+        return new BatchLookup(patentNumbers, priority).start();
+
+    }
+
+    @Override
+    public CompletableFuture<UsptoSearchResponse> searchAsync(UsptoSearchRequest usptoSearchRequest) {
+
+        return searchAsync(usptoSearchRequest, Priority.INTERACTIVE);
+
+    }
+
+    @Override
+    public CompletableFuture<UsptoSearchResponse> searchAsync(UsptoSearchRequest usptoSearchRequest, Priority priority) {
+
+        final long startTime = System.nanoTime();
+        final UsptoSearchRequest normalizedRequest = SearchCache.normalize(usptoSearchRequest);
+
+        UsptoSearchRequest cachedRequest = normalizedRequest;
+        SearchCache.CachedSearch cachedSearch = usptoSearchRequest.isCacheable() ? searchCache.get(cachedRequest) : null;
+
+        // A result cached with every field, such as one from a cache warm-up, can serve a request for fewer fields.
+        if(cachedSearch == null && usptoSearchRequest.isCacheable() && !normalizedRequest.getFields().isAll()) {
+            cachedRequest = SearchCache.normalize(usptoSearchRequest);
+            cachedRequest.setFields(FieldList.ALL);
+            cachedSearch = searchCache.get(cachedRequest);
+        }
+
+        if(cachedSearch != null) {
+
+            // Serve the stale result now and refresh it for the next search.
+            if(cachedSearch.isStale()) {
+                refreshSearch(cachedRequest);
+            }
+
+            return CompletableFuture.completedFuture(toSearchResponse(usptoSearchRequest, cachedSearch.getResponse(), startTime));
+
+        }
+
+        // Identical concurrent searches share one call to the USPTO API.
+        final UpstreamScheduler.Ticket ticket = scheduler.newTicket(priority);
+
+        return searchFlights.execute(normalizedRequest, ticket, () -> fetchSearch(normalizedRequest, ticket))
+                .thenApply(response -> toSearchResponse(usptoSearchRequest, response, startTime));
+
+    }
+
+    /**
+     * Gets the number of document lookups that shared another request's in-flight USPTO call.
+     * @return The number of coalesced lookups.
+     */
+    public long getCoalescedLookupCount() {
+
+        return documentFlights.getCoalescedCount();
+
+    }
+
+    /**
+     * Gets the number of searches that shared another request's in-flight USPTO call.
+     * @return The number of coalesced searches.
+     */
+    public long getCoalescedSearchCount() {
+
+        return searchFlights.getCoalescedCount();
+
+    }
+
+    private CompletableFuture<Doc> fetchDocument(String patentNumber, UpstreamScheduler.Ticket ticket) {
+
+        // This will return a single doc.
+        return readGrants("document", service.getGrant(patentNumber), grantReader, FieldList.ALL, ticket).thenApply(page -> {
+
+            final List<Grant> grants = page.getGrants();
+
+            final Doc doc = new Doc(patentNumber);
+
+            // Just make sure we got a doc.
+            if(!grants.isEmpty()) {
+
+                // Create a Doc from the result.
+                doc.setTitle(grants.get(0).getInventionTitle());
+                doc.setDescription(grants.get(0).getDescriptionText());
+
+                documentCache.put(doc);
+                documentStore.put(doc);
+
+            } else {
+
+                // No patent exists for this patent number.
+                LOGGER.warn("No patent found for patent number {}", patentNumber);
+
+                notFoundCounter.increment();
+
+                doc.setTitle(NOT_FOUND);
+                doc.setDescription(NOT_FOUND);
+
+                documentCache.putNotFound(doc);
+
+            }
+
+            return doc;
+
+        });
+
+    }
+
+    /**
+     * Refreshes a cached search in the background. A failed refresh leaves the stale result in the cache.
+     * Nobody is waiting on the refresh, so it only uses the rate budget interactive searches leave.
+     * @param normalizedRequest The normalized {@link UsptoSearchRequest}.
+     */
+    private void refreshSearch(final UsptoSearchRequest normalizedRequest) {
+
+        final UpstreamScheduler.Ticket ticket = scheduler.newTicket(Priority.PREFETCH);
+
+        searchFlights.execute(normalizedRequest, ticket, () -> fetchSearch(normalizedRequest, ticket)).whenComplete((response, ex) -> {
+
+            if(ex != null) {
+                LOGGER.debug("Unable to refresh search searchText=\"{}\": {}", normalizedRequest.getSearchText(), ex.toString());
+            }
+
+        });
+
+    }
+
+    private CompletableFuture<Response> fetchSearch(UsptoSearchRequest usptoSearchRequest, UpstreamScheduler.Ticket ticket) {
 
         final String searchText = usptoSearchRequest.getSearchText();
         final int start = usptoSearchRequest.getStart();
         final int rows = usptoSearchRequest.getRows();
         final String largeTextSearchFlag = usptoSearchRequest.getLargeTextSearchFlag();
 
-        final long startTime = System.currentTimeMillis();
-        final List<Grant> grants = service.getGrants(searchText, start, rows, largeTextSearchFlag).execute().body();
-        final long searchTime = System.currentTimeMillis() - startTime;
+        final FieldList fields = usptoSearchRequest.getFields();
+
+        // Only the requested fields are read out of the response. The USPTO API has no way to leave the others out.
+        // Search results get shorter descriptions than document lookups, which is where Quepid shows the whole document.
+        return readGrants("search", service.getGrants(searchText, start, rows, largeTextSearchFlag), searchGrantReader, fields, ticket).thenApply(page -> {
+
+            final List<Doc> docs = new ArrayList<>(page.getGrants().size());
+
+            for(final Grant grant : page.getGrants()) {
+
+                final Doc doc = new Doc(grant.getPatentNumber());
+                doc.setTitle(grant.getInventionTitle());
+                doc.setDescription(grant.getDescriptionText());
+
+                // Patents that are already in another cached search result share its doc.
+                docs.add(documentInterner.intern(fields, doc));
+
+            }
+
+            final Response response = new Response(docs, getNumFound(page, start, rows), start);
 
-        final List<Doc> docs = new LinkedList<>();
+            searchCache.put(usptoSearchRequest, response);
 
-        for(final Grant grant : grants) {
+            return response;
 
-            final Doc doc = new Doc(grant.getPatentNumber());
-            doc.setTitle(grants.get(0).getInventionTitle());
-            doc.setDescription(grants.get(0).getDescriptionText());
+        });
 
-            docs.add(doc);
+    }
 
+    /**
+     * Works out Solr's <code>numFound</code> for a page of search results.
+     * When the USPTO response doesn't include the total, a short page means the results ended on it. A full page
+     * reports one more result than has been seen so Quepid still offers the next page.
+     * @param page The {@link GrantPage}.
+     * @param start The offset of the page.
+     * @param rows The page size that was asked for.
+     * @return The number of matching documents.
+     */
+    private static int getNumFound(final GrantPage page, final int start, final int rows) {
+
+        if(page.getTotal() != GrantPage.UNKNOWN_TOTAL) {
+            return page.getTotal();
         }
 
+        final int seen = start + page.getGrants().size();
+
+        return page.getGrants().size() < rows ? seen : seen + 1;
+
+    }
+
+    /**
+     * Creates the search response for a request from a search result, which may have come from the cache.
+     * @param usptoSearchRequest The {@link UsptoSearchRequest} as it was received.
+     * @param response The {@link Response}.
+     * @param startTime When the search started, from {@link System#nanoTime()}.
+     * @return The {@link UsptoSearchResponse}.
+     */
+    private UsptoSearchResponse toSearchResponse(final UsptoSearchRequest usptoSearchRequest, final Response response, final long startTime) {
+
+        final long searchTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
         final Params params = new Params(usptoSearchRequest.getSearchText());
         final ResponseHeader responseHeader = new ResponseHeader(0, searchTime, params);
-
-        final Response response = new Response(docs);
         final SolrResponse solrResponse = new SolrResponse(responseHeader, response);
 
         final UsptoSearchResponse usptoSearchResponse = new UsptoSearchResponse();
         usptoSearchResponse.setSearchTime(searchTime);
-        usptoSearchResponse.setJson(gson.toJson(solrResponse));
+        usptoSearchResponse.setSolrResponse(solrResponse);
 
         return usptoSearchResponse;
 
     }
 
+    /**
+     * Makes a USPTO call and streams the grants out of the response when it arrives.
+     * A call that hasn't returned by the {@link HedgingPolicy} delay is hedged with a duplicate, and a call that fails in a way
+     * that could succeed next time is retried once. The first successful call wins and the others are cancelled.
+     * Hedges and retries are only made while the {@link RetryBudget} allows. Each of them waits its turn with the
+     * {@link UpstreamScheduler} at the ticket's priority.
+     * @param callName The name the call is tagged with in the metrics.
+     * @param call The USPTO {@link Call}.
+     * @param reader The {@link GrantReader} for the response.
+     * @param fields The {@link FieldList} of the fields to read.
+     * @param ticket The {@link UpstreamScheduler.Ticket} of the call.
+     * @return The {@link GrantPage}.
+     */
+    private CompletableFuture<GrantPage> readGrants(final String callName, final Call<ResponseBody> call,
+                                                    final GrantReader reader, final FieldList fields,
+                                                    final UpstreamScheduler.Ticket ticket) {
+
+        return new HedgedCall(callName, call, reader, fields, ticket).start();
+
+    }
+
+    /**
+     * Enqueues a single USPTO call and streams the grants out of the response when it arrives.
+     * No thread waits on the call while it is in flight.
+     * The call, including reading the grants, is timed as <code>uspto.calls</code> and failures are counted as <code>uspto.errors</code>.
+     * The call fails fast with an {@link UpstreamUnavailableException} instead of being made when the concurrency limit
+     * is reached or the circuit breaker is open. Only failures that are down to the USPTO API or the network count
+     * against its health (see {@link UpstreamFailures}). A call that is cancelled because another one won, a client
+     * error or a response that couldn't be read counts as a success for the limiter and isn't counted by the breaker.
+     * @param callName The name the call is tagged with in the metrics.
+     * @param call The USPTO {@link Call}.
+     * @param reader The {@link GrantReader} for the response.
+     * @param fields The {@link FieldList} of the fields to read.
+     * @return The {@link GrantPage}.
+     */
+    private CompletableFuture<GrantPage> callOnce(final String callName, final Call<ResponseBody> call,
+                                                  final GrantReader reader, final FieldList fields) {
+
+        if(!concurrencyLimiter.tryAcquire()) {
+            return Futures.failed(new UpstreamUnavailableException("Too many USPTO API calls in flight"));
+        }
+
+        if(!circuitBreaker.tryAcquire()) {
+            concurrencyLimiter.cancel();
+            return Futures.failed(new UpstreamUnavailableException("USPTO API is unavailable, calls are paused"));
+        }
+
+        final CompletableFuture<GrantPage> grants = new CompletableFuture<>();
+        final Timer.Sample sample = Timer.start(meterRegistry);
+        final long startTime = System.nanoTime();
+
+        grants.whenComplete((result, ex) -> {
+
+            final String outcome;
+
+            if(ex == null) {
+
+                outcome = "success";
+                concurrencyLimiter.release(startTime, true);
+                circuitBreaker.onSuccess();
+                hedgingPolicy.record(callName, System.nanoTime() - startTime);
+
+            } else if(call.isCanceled()) {
+
+                outcome = "cancelled";
+                concurrencyLimiter.cancel();
+                circuitBreaker.onIgnored();
+
+            } else {
+
+                outcome = "error";
+                meterRegistry.counter("uspto.errors", "call", callName, "exception", ex.getClass().getSimpleName()).increment();
+
+                if(UpstreamFailures.isTransient(ex)) {
+                    concurrencyLimiter.release(startTime, false);
+                    circuitBreaker.onFailure();
+                } else {
+                    concurrencyLimiter.release(startTime, true);
+                    circuitBreaker.onIgnored();
+                }
+
+            }
+
+            sample.stop(Timer.builder("uspto.calls")
+                    .description("Calls to the USPTO API, including reading the response.")
+                    .tags("call", callName, "outcome", outcome)
+                    .register(meterRegistry));
+
+        });
+
+        call.enqueue(new Callback<ResponseBody>() {
+
+            @Override
+            public void onResponse(Call<ResponseBody> call, retrofit2.Response<ResponseBody> response) {
+
+                try {
+                    grants.complete(readGrants(call, response, reader, fields));
+                } catch (IOException | RuntimeException ex) {
+                    grants.completeExceptionally(ex);
+                }
+
+            }
+
+            @Override
+            public void onFailure(Call<ResponseBody> call, Throwable throwable) {
+
+                grants.completeExceptionally(throwable);
+
+            }
+
+        });
+
+        return grants;
+
+    }
+
+    private GrantPage readGrants(final Call<ResponseBody> call, final retrofit2.Response<ResponseBody> response,
+                                 final GrantReader reader, final FieldList fields) throws IOException {
+
+        final ResponseBody body = response.body();
+
+        if(!response.isSuccessful() || body == null) {
+
+            if(response.errorBody() != null) {
+                response.errorBody().close();
+            }
+
+            final String problem = body == null && response.isSuccessful() ? "no body" : "HTTP " + response.code();
+
+            throw new UpstreamResponseException("USPTO API returned " + problem + " for " + call.request().url(), response.code());
+
+        }
+
+        return reader.read(body, fields);
+
+    }
+
+    /**
+     * Looks up a batch of patents with at most <code>lookupMaxConcurrency</code> lookups in flight,
+     * keeping the docs in the order the patent numbers were requested.
+     */
+    private final class BatchLookup {
+
+        private final List<String> patentNumbers;
+        private final Priority priority;
+        private final AtomicReferenceArray<Doc> docs;
+        private final AtomicInteger next = new AtomicInteger();
+        private final AtomicInteger remaining;
+        private final CompletableFuture<List<Doc>> result = new CompletableFuture<>();
+
+        private BatchLookup(final Collection<String> patentNumbers, final Priority priority) {
+
+            this.patentNumbers = new ArrayList<>(patentNumbers);
+            this.priority = priority;
+            this.docs = new AtomicReferenceArray<>(this.patentNumbers.size());
+            this.remaining = new AtomicInteger(this.patentNumbers.size());
+
+        }
+
+        private CompletableFuture<List<Doc>> start() {
+
+            if(patentNumbers.isEmpty()) {
+                result.complete(new ArrayList<>());
+            }
+
+            for (int i = 0; i < Math.min(lookupMaxConcurrency, patentNumbers.size()); i++) {
+                startNext();
+            }
+
+            return result;
+
+        }
+
+        private void startNext() {
+
+            int index;
+
+            // Lookups served from the cache are already complete, so carry on in a loop instead of recursing.
+            while (!result.isDone() && (index = next.getAndIncrement()) < patentNumbers.size()) {
+
+                final int lookupIndex = index;
+                final CompletableFuture<Doc> lookup = getDocumentAsync(patentNumbers.get(lookupIndex), priority);
+
+                if(lookup.isDone()) {
+
+                    lookup.whenComplete((doc, ex) -> complete(lookupIndex, doc, ex));
+
+                } else {
+
+                    lookup.whenComplete((doc, ex) -> {
+                        complete(lookupIndex, doc, ex);
+                        startNext();
+                    });
+
+                    return;
+
+                }
+
+            }
+
+        }
+
+        private void complete(final int index, final Doc doc, final Throwable ex) {
+
+            if(ex != null) {
+                result.completeExceptionally(Futures.unwrap(ex));
+                return;
+            }
+
+            docs.set(index, doc);
+
+            if(remaining.decrementAndGet() == 0) {
+
+                final List<Doc> batch = new ArrayList<>(docs.length());
+
+                for (int i = 0; i < docs.length(); i++) {
+
+                    if(docs.get(i) != null) {
+                        batch.add(docs.get(i));
+                    }
+
+                }
+
+                result.complete(batch);
+
+            }
+
+        }
+
+    }
+
+    /**
+     * A USPTO call together with its hedge and retry, completing with the first of them to succeed.
+     */
+    private final class HedgedCall {
+
+        private final String callName;
+        private final Call<ResponseBody> call;
+        private final GrantReader reader;
+        private final FieldList fields;
+        private final UpstreamScheduler.Ticket ticket;
+        // The calls still in flight or waiting for the scheduler, and the waits.
+        private final List<Call<ResponseBody>> calls = new ArrayList<>(3);
+        private final List<CompletableFuture<Void>> waits = new ArrayList<>(3);
+        private final CompletableFuture<GrantPage> result = new CompletableFuture<>();
+        private boolean hedged;
+        private boolean retried;
+        private ScheduledFuture<?> hedge;
+
+        private HedgedCall(final String callName, final Call<ResponseBody> call, final GrantReader reader, final FieldList fields,
+                           final UpstreamScheduler.Ticket ticket) {
+
+            this.callName = callName;
+            this.call = call;
+            this.reader = reader;
+            this.fields = fields;
+            this.ticket = ticket;
+
+        }
+
+        /**
+         * Makes the call, and schedules its hedge once it has been started.
+         * @return The {@link GrantPage} from the first call to succeed.
+         */
+        private synchronized CompletableFuture<GrantPage> start() {
+
+            retryBudget.onCall();
+            launch(call).thenRun(this::scheduleHedge);
+
+            return result;
+
+        }
+
+        /**
+         * Schedules the hedge. The hedging delay is measured from when the call is made, not from when it started waiting.
+         */
+        private synchronized void scheduleHedge() {
+
+            if(!result.isDone()) {
+                hedge = hedgingPolicy.schedule(callName, this::hedge);
+            }
+
+        }
+
+        /**
+         * Makes one of the calls once the {@link UpstreamScheduler} lets it.
+         * @param attempt The {@link Call} to make.
+         * @return Completes when the call is made.
+         */
+        private synchronized CompletableFuture<Void> launch(final Call<ResponseBody> attempt) {
+
+            calls.add(attempt);
+
+            final Timer.Sample waitSample = Timer.start(meterRegistry);
+            final CompletableFuture<Void> wait = scheduler.acquire(ticket);
+            waits.add(wait);
+
+            wait.thenCompose(ignored -> {
+
+                waitSample.stop(Timer.builder("uspto.scheduler.wait")
+                        .description("Time USPTO calls waited for the rate budget.")
+                        .tags("call", callName, "priority", ticket.getPriority().getTag())
+                        .register(meterRegistry));
+
+                // Another call may have won while this one waited.
+                return result.isDone() ? Futures.<GrantPage>failed(new CancellationException()) : callOnce(callName, attempt, reader, fields);
+
+            }).whenComplete((page, ex) -> onComplete(attempt, page, ex));
+
+            return wait;
+
+        }
+
+        /**
+         * Makes a duplicate of a call that is taking too long, if the budget allows it.
+         */
+        private synchronized void hedge() {
+
+            if(result.isDone() || hedged || !retryBudget.tryWithdraw()) {
+                return;
+            }
+
+            hedged = true;
+            meterRegistry.counter("uspto.extra.calls", "call", callName, "reason", "hedge").increment();
+
+            launch(call.clone());
+
+        }
+
+        /**
+         * Completes the result with the first success, or with the last failure once no call is left that could succeed.
+         * A failed call is retried once, if nothing else is in flight, the failure could be transient and the budget allows it.
+         * @param attempt The {@link Call} that completed.
+         * @param page The {@link GrantPage} of a successful call.
+         * @param throwable The failure of a failed call.
+         */
+        private synchronized void onComplete(final Call<ResponseBody> attempt, final GrantPage page, final Throwable throwable) {
+
+            // Only calls still in flight are cancelled, so a call that just failed is still counted as an error.
+            calls.remove(attempt);
+
+            if(result.isDone()) {
+                return;
+            }
+
+            if(throwable == null) {
+
+                result.complete(page);
+                cancelOthers();
+                return;
+
+            }
+
+            final Throwable ex = Futures.unwrap(throwable);
+
+            if(!calls.isEmpty()) {
+                return;
+            }
+
+            if(!retried && isRetryable(ex) && retryBudget.tryWithdraw()) {
+
+                retried = true;
+                meterRegistry.counter("uspto.extra.calls", "call", callName, "reason", "retry").increment();
+
+                launch(call.clone());
+                return;
+
+            }
+
+            result.completeExceptionally(ex);
+            cancelOthers();
+
+        }
+
+        /**
+         * Cancels the hedge if it hasn't been made yet, the calls still waiting for the scheduler and the calls in flight.
+         */
+        private void cancelOthers() {
+
+            if(hedge != null) {
+                hedge.cancel(false);
+            }
+
+            for (final CompletableFuture<Void> wait : waits) {
+                wait.cancel(false);
+            }
+
+            for (final Call<ResponseBody> other : calls) {
+                other.cancel();
+            }
+
+        }
+
+        /**
+         * Checks whether a failed call could succeed if it was made again.
+         * Connection failures, timeouts and some error responses could (see {@link UpstreamFailures}). Calls that were
+         * never made because the USPTO API is unhealthy, client errors and responses that couldn't be read can't,
+         * and retrying them would only spend the budget.
+         * @param ex The failure.
+         * @return <code>true</code> if the call can be retried.
+         */
+        private boolean isRetryable(final Throwable ex) {
+
+            return UpstreamFailures.isTransient(ex);
+
+        }
+
+    }
+
 }
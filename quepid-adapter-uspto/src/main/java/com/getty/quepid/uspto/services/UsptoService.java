@@ -23,32 +23,35 @@ SOFTWARE.
 
 package com.getty.quepid.uspto.services;
 
-import com.getty.quepid.uspto.model.Grant;
+import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.http.GET;
 import retrofit2.http.Headers;
 import retrofit2.http.Query;
+import retrofit2.http.Streaming;
 
-import java.util.List;
-
+// The responses are streamed and read with GrantReader rather than bound to a List<Grant>
+// because the description text of every grant can be very large.
 public interface UsptoService {
 
     // Subset implementation of https://developer.uspto.gov/ibd-api/#!/bulkdata/searchPublicationData
     @Headers({
             "Accept: application/json"
     })
+    @Streaming
     @GET("v1/application/grants")
-    Call<List<Grant>> getGrants(@Query("searchText") String searchText,
-                                @Query("start") int start,
-                                @Query("rows") int rows,
-                                @Query("largeTextSearchFlag") String largeTextSearchFlag);
+    Call<ResponseBody> getGrants(@Query("searchText") String searchText,
+                                 @Query("start") int start,
+                                 @Query("rows") int rows,
+                                 @Query("largeTextSearchFlag") String largeTextSearchFlag);
     // https://developer.uspto.gov/ibd-api/v1/application/grants?searchText=dog&start=0&rows=100&largeTextSearchFlag=N
 
     @Headers({
             "Accept: application/json"
     })
+    @Streaming
     @GET("v1/application/grants")
-    Call<List<Grant>> getGrant(@Query("patentNumber") String patentNumber);
+    Call<ResponseBody> getGrant(@Query("patentNumber") String patentNumber);
     // https://developer.uspto.gov/ibd-api/v1/application/grants?patentNumber=08088540&start=0&rows=100&largeTextSearchFlag=N
 
 }
\ No newline at end of file
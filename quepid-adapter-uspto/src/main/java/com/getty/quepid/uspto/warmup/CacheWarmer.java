@@ -0,0 +1,283 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.uspto.warmup;
+
+import com.getty.quepid.model.search.AbstractSearchService;
+import com.getty.quepid.model.search.Priority;
+import com.getty.quepid.uspto.model.UsptoSearchRequest;
+import com.getty.quepid.uspto.model.UsptoSearchResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Warms the search and document caches by running a {@link WarmupPlan} through the search backend,
+ * so the first rater of the day gets cached latencies. With the local Lucene backend this warms the OS page cache instead.
+ * <p>
+ * At most <code>max-concurrency</code> searches and lookups are in flight, and they are started no faster than
+ * <code>rate</code> per second so warming doesn't use up the upstream's capacity, and they are made at
+ * {@link Priority#PREFETCH} priority so Quepid's own requests go first. Only one warm-up runs at a time.
+ * A warm-up can run at startup from <code>quepid.warmup.file</code> or be started through the admin endpoint.
+ */
+@Component
+public class CacheWarmer {
+
+    private final Logger LOGGER = LoggerFactory.getLogger(CacheWarmer.class);
+
+    private final AbstractSearchService<UsptoSearchRequest, UsptoSearchResponse> searchService;
+    private final String warmupFile;
+    private final int maxConcurrency;
+    private final double rate;
+    private final ExecutorService executor;
+
+    private volatile Job job;
+
+    public CacheWarmer(AbstractSearchService<UsptoSearchRequest, UsptoSearchResponse> searchService,
+                       @Value("${quepid.warmup.file:}") String warmupFile,
+                       @Value("${quepid.warmup.max-concurrency:4}") int maxConcurrency,
+                       @Value("${quepid.warmup.rate:5}") double rate) {
+
+        this.searchService = searchService;
+        this.warmupFile = warmupFile;
+        this.maxConcurrency = maxConcurrency;
+        this.rate = rate;
+
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "cache-warmer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmOnStartup() throws IOException {
+
+        if(warmupFile.isEmpty()) {
+            return;
+        }
+
+        try (Reader reader = Files.newBufferedReader(Paths.get(warmupFile), StandardCharsets.UTF_8)) {
+            start(WarmupPlan.read(reader));
+        }
+
+    }
+
+    @PreDestroy
+    public void close() {
+
+        executor.shutdownNow();
+
+    }
+
+    /**
+     * Starts warming the caches in the background.
+     * @param plan The {@link WarmupPlan}.
+     * @return The {@link WarmupStatus} of the new warm-up, as it starts.
+     * @throws IllegalStateException Thrown if a warm-up is already running.
+     */
+    public synchronized WarmupStatus start(final WarmupPlan plan) {
+
+        if(job != null && job.state == WarmupStatus.State.RUNNING) {
+            throw new IllegalStateException("A cache warm-up is already running");
+        }
+
+        LOGGER.info("Warming caches with {} queries and {} documents", plan.getQueries().size(), plan.getDocumentIds().size());
+
+        job = new Job(plan);
+
+        // A small plan can be done before execute returns, so the status is taken while the job is still RUNNING.
+        final WarmupStatus status = job.getStatus();
+        executor.execute(job::run);
+
+        return status;
+
+    }
+
+    /**
+     * Stops the running warm-up, if there is one. Searches and lookups already in flight still complete.
+     * @return The {@link WarmupStatus}.
+     */
+    public synchronized WarmupStatus cancel() {
+
+        if(job != null) {
+            job.cancelled = true;
+        }
+
+        return getStatus();
+
+    }
+
+    /**
+     * Gets the progress of the current or last warm-up.
+     * @return The {@link WarmupStatus}.
+     */
+    public WarmupStatus getStatus() {
+
+        final Job current = job;
+
+        return current == null ? new WarmupStatus(WarmupStatus.State.IDLE, 0, 0, 0, 0, 0) : current.getStatus();
+
+    }
+
+    /**
+     * One run through a {@link WarmupPlan}.
+     */
+    private final class Job {
+
+        private final WarmupPlan plan;
+        private final AtomicInteger completed = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final long startTime = System.nanoTime();
+
+        private volatile WarmupStatus.State state = WarmupStatus.State.RUNNING;
+        private volatile long endTime;
+        private volatile boolean cancelled;
+
+        private Job(final WarmupPlan plan) {
+
+            this.plan = plan;
+
+        }
+
+        /**
+         * Runs the searches and then the document lookups, keeping to the concurrency and rate limits.
+         * A search or lookup that throws instead of returning a future counts as failed, and the warm-up always ends
+         * in a final state, so a broken warm-up can't block the next one.
+         */
+        private void run() {
+
+            final List<Supplier<CompletableFuture<?>>> tasks = new ArrayList<>();
+
+            for(final String query : plan.getQueries()) {
+                tasks.add(() -> searchService.searchAsync(new UsptoSearchRequest(query), Priority.PREFETCH));
+            }
+
+            for(final String documentId : plan.getDocumentIds()) {
+                tasks.add(() -> searchService.getDocumentAsync(documentId, Priority.PREFETCH));
+            }
+
+            final Semaphore permits = new Semaphore(maxConcurrency);
+            final long intervalNanos = rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / rate) : 0;
+            long nextStartTime = System.nanoTime();
+
+            try {
+
+                for(final Supplier<CompletableFuture<?>> task : tasks) {
+
+                    if(cancelled) {
+                        break;
+                    }
+
+                    permits.acquire();
+
+                    // Keep to the rate budget by spacing out the starts.
+                    final long waitNanos = nextStartTime - System.nanoTime();
+
+                    if(waitNanos > 0) {
+                        TimeUnit.NANOSECONDS.sleep(waitNanos);
+                    }
+
+                    nextStartTime = Math.max(nextStartTime, System.nanoTime() - intervalNanos) + intervalNanos;
+
+                    final CompletableFuture<?> request;
+
+                    try {
+                        request = task.get();
+                    } catch (RuntimeException ex) {
+                        failed.incrementAndGet();
+                        permits.release();
+                        LOGGER.debug("Cache warm-up request failed: {}", ex.toString());
+                        continue;
+                    }
+
+                    request.whenComplete((result, ex) -> {
+
+                        if(ex == null) {
+                            completed.incrementAndGet();
+                        } else {
+                            failed.incrementAndGet();
+                            LOGGER.debug("Cache warm-up request failed: {}", ex.toString());
+                        }
+
+                        permits.release();
+
+                    });
+
+                }
+
+                // Wait for the last ones to finish.
+                permits.acquire(maxConcurrency);
+
+            } catch (InterruptedException ex) {
+
+                Thread.currentThread().interrupt();
+                cancelled = true;
+
+            } finally {
+
+                endTime = System.nanoTime();
+                state = cancelled ? WarmupStatus.State.CANCELLED : WarmupStatus.State.COMPLETED;
+
+                LOGGER.info("Cache warm-up {}", getStatus());
+
+            }
+
+        }
+
+        /**
+         * Takes a snapshot of the progress.
+         * @return The {@link WarmupStatus}.
+         */
+        private WarmupStatus getStatus() {
+
+            final long elapsedNanos = (state == WarmupStatus.State.RUNNING ? System.nanoTime() : endTime) - startTime;
+
+            return new WarmupStatus(state, plan.getQueries().size(), plan.getDocumentIds().size(),
+                    completed.get(), failed.get(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+
+        }
+
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.uspto.warmup;
+
+import com.getty.quepid.model.search.CsvLines;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The searches and documents to warm the caches with.
+ * <p>
+ * It is read from either a Quepid case export, the ratings CSV with <code>Query Text</code> and <code>Doc ID</code>
+ * columns, or a plain query list with one query per line where blank lines and lines starting with <code>#</code>
+ * are skipped. Queries and document IDs are de-duplicated and kept in the order they first appear.
+ */
+public class WarmupPlan {
+
+    private final List<String> queries;
+    private final List<String> documentIds;
+
+    public WarmupPlan(List<String> queries, List<String> documentIds) {
+
+        this.queries = Collections.unmodifiableList(new ArrayList<>(queries));
+        this.documentIds = Collections.unmodifiableList(new ArrayList<>(documentIds));
+
+    }
+
+    /**
+     * Reads a Quepid case export or a plain query list.
+     * @param reader The {@link Reader}. It is not closed.
+     * @return The {@link WarmupPlan}.
+     * @throws IOException Thrown if the input can't be read.
+     */
+    public static WarmupPlan read(final Reader reader) throws IOException {
+
+        final BufferedReader lines = new BufferedReader(reader);
+        final Set<String> queries = new LinkedHashSet<>();
+        final Set<String> documentIds = new LinkedHashSet<>();
+
+        String line = CsvLines.stripByteOrderMark(lines.readLine());
+
+        final List<String> header = line == null ? Collections.<String>emptyList() : CsvLines.parse(line);
+        final int queryColumn = CsvLines.indexOf(header, "query text", "query");
+        final int docColumn = CsvLines.indexOf(header, "doc id", "docid", "document id");
+
+        if(queryColumn == -1) {
+
+            // A plain query list, so the first line is a query too.
+            for(; line != null; line = lines.readLine()) {
+
+                final String query = line.trim();
+
+                if(!query.isEmpty() && !query.startsWith("#")) {
+                    queries.add(query);
+                }
+
+            }
+
+        } else {
+
+            while((line = lines.readLine()) != null) {
+
+                if(line.trim().isEmpty()) {
+                    continue;
+                }
+
+                final List<String> columns = CsvLines.parse(line);
+                final String query = CsvLines.get(columns, queryColumn);
+                final String documentId = CsvLines.get(columns, docColumn);
+
+                if(!query.isEmpty()) {
+                    queries.add(query);
+                }
+
+                if(!documentId.isEmpty()) {
+                    documentIds.add(documentId);
+                }
+
+            }
+
+        }
+
+        return new WarmupPlan(new ArrayList<>(queries), new ArrayList<>(documentIds));
+
+    }
+
+    public List<String> getQueries() {
+        return queries;
+    }
+
+    public List<String> getDocumentIds() {
+        return documentIds;
+    }
+
+}
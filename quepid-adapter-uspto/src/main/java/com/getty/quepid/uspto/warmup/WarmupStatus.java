@@ -0,0 +1,94 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.uspto.warmup;
+
+/**
+ * A snapshot of the progress of a cache warm-up.
+ */
+public class WarmupStatus {
+
+    /**
+     * The warm-up states.
+     */
+    public enum State {
+
+        IDLE,
+        RUNNING,
+        COMPLETED,
+        CANCELLED
+
+    }
+
+    private final State state;
+    private final int queries;
+    private final int documents;
+    private final int completed;
+    private final int failed;
+    private final long elapsedMs;
+
+    public WarmupStatus(State state, int queries, int documents, int completed, int failed, long elapsedMs) {
+
+        this.state = state;
+        this.queries = queries;
+        this.documents = documents;
+        this.completed = completed;
+        this.failed = failed;
+        this.elapsedMs = elapsedMs;
+
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public int getQueries() {
+        return queries;
+    }
+
+    public int getDocuments() {
+        return documents;
+    }
+
+    public int getTotal() {
+        return queries + documents;
+    }
+
+    public int getCompleted() {
+        return completed;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public long getElapsedMs() {
+        return elapsedMs;
+    }
+
+    @Override
+    public String toString() {
+        return state + " " + (completed + failed) + "/" + getTotal() + " (" + failed + " failed) in " + elapsedMs + "ms";
+    }
+
+}
@@ -0,0 +1,82 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.uspto.cache;
+
+import com.getty.quepid.model.solr.Doc;
+import com.getty.quepid.model.solr.FieldList;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class DocumentInternerTest {
+
+    private final DocumentInterner interner = new DocumentInterner();
+
+    @Test
+    void sharesDocsWithTheSameContent() {
+
+        final Doc doc = doc("Title", "Description");
+
+        assertSame(doc, interner.intern(FieldList.ALL, doc));
+        assertSame(doc, interner.intern(FieldList.ALL, doc("Title", "Description")));
+
+    }
+
+    @Test
+    void keepsDocsReadWithDifferentFieldsApart() {
+
+        final Doc doc = doc("Title", null);
+        interner.intern(FieldList.parse("id,title"), doc);
+
+        assertNotSame(doc, interner.intern(FieldList.ALL, doc("Title", null)));
+
+    }
+
+    @Test
+    void replacesADocWhoseContentChanged() {
+
+        final Doc old = interner.intern(FieldList.ALL, doc("Title", "Description"));
+        final Doc refreshed = doc("Title", "Amended description");
+
+        assertSame(refreshed, interner.intern(FieldList.ALL, refreshed));
+        assertSame(refreshed, interner.intern(FieldList.ALL, doc("Title", "Amended description")));
+
+        // Results cached before the refresh keep what they had.
+        assertEquals("Description", old.getDescription());
+
+    }
+
+    private static Doc doc(final String title, final String description) {
+
+        final Doc doc = new Doc("10000000");
+        doc.setTitle(title);
+        doc.setDescription(description);
+
+        return doc;
+
+    }
+
+}
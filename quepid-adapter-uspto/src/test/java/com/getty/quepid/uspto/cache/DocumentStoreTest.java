@@ -0,0 +1,210 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.uspto.cache;
+
+import com.getty.quepid.model.solr.Doc;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DocumentStoreTest {
+
+    // Each record is the 12 byte header, an 8 character id, a 10 character title and the description.
+    private static final int DESCRIPTION_LENGTH = 970;
+    private static final int RECORD_BYTES = 12 + 8 + 10 + DESCRIPTION_LENGTH;
+    private static final long MAX_SIZE_BYTES = 20L * RECORD_BYTES;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void storesDocsAcrossRestarts() throws IOException {
+
+        final DocumentStore store = open();
+
+        store.put(doc(1, "a"));
+
+        final Doc withoutFields = new Doc(id(2));
+        store.put(withoutFields);
+
+        store.close();
+
+        final DocumentStore reopened = open();
+
+        assertEquals(2, reopened.getDocumentCount());
+        assertEquals(2L * RECORD_BYTES - 10 - DESCRIPTION_LENGTH, reopened.getSizeBytes());
+        assertEquals("title-" + id(1).substring(4), reopened.get(id(1)).getTitle());
+        assertEquals(description("a"), reopened.get(id(1)).getDescription());
+        assertNull(reopened.get(id(2)).getTitle());
+        assertNull(reopened.get(id(2)).getDescription());
+        assertNull(reopened.get(id(3)));
+
+        reopened.close();
+
+    }
+
+    @Test
+    void truncatesAPartiallyWrittenRecord() throws IOException {
+
+        final DocumentStore store = open();
+        store.put(doc(1, "a"));
+        store.close();
+
+        // A crash halfway through writing the next record.
+        try (FileChannel channel = FileChannel.open(directory.resolve("documents.seg"), StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{ 0, 0, 0, 8, 0, 0, 0, 10, 0, 0 }));
+        }
+
+        final DocumentStore reopened = open();
+
+        assertEquals(1, reopened.getDocumentCount());
+        assertEquals(RECORD_BYTES, reopened.getSizeBytes());
+        assertEquals(description("a"), reopened.get(id(1)).getDescription());
+
+        reopened.close();
+
+    }
+
+    @Test
+    void compactsInTheBackgroundWhenFull() throws Exception {
+
+        final DocumentStore store = open();
+
+        // Patent 0 is written again at the end, so its first record is superseded.
+        for (int i = 0; i < 20; i++) {
+            store.put(doc(i, "a"));
+        }
+
+        store.put(doc(0, "b"));
+
+        await(() -> store.getSizeBytes() <= MAX_SIZE_BYTES * 0.75);
+
+        // The newest records are kept and the oldest dropped.
+        assertEquals(15, store.getDocumentCount());
+        assertEquals(15L * RECORD_BYTES, store.getSizeBytes());
+        assertEquals(description("b"), store.get(id(0)).getDescription());
+        assertEquals(description("a"), store.get(id(19)).getDescription());
+        assertNull(store.get(id(5)));
+        assertNotNull(store.get(id(6)));
+
+        // The store takes puts again once the compaction is done.
+        store.put(doc(5, "c"));
+        assertEquals(description("c"), store.get(id(5)).getDescription());
+
+        store.close();
+
+        final DocumentStore reopened = open();
+
+        assertEquals(16, reopened.getDocumentCount());
+        assertEquals(description("b"), reopened.get(id(0)).getDescription());
+        assertEquals(description("c"), reopened.get(id(5)).getDescription());
+
+        reopened.close();
+
+    }
+
+    @Test
+    void keepsWorkingWhenCompactionFails() throws Exception {
+
+        // The compacted segment can't be created where a directory is in the way.
+        Files.createDirectories(directory.resolve("documents.seg.compact").resolve("blocked"));
+
+        final DocumentStore store = open();
+
+        for (int i = 0; i < 21; i++) {
+            store.put(doc(i, "a"));
+        }
+
+        // Once the failed compaction has finished puts are taken again.
+        await(() -> {
+            store.put(doc(100, "b"));
+            return store.get(id(100)) != null;
+        });
+
+        assertEquals(22, store.getDocumentCount());
+        assertEquals(description("a"), store.get(id(0)).getDescription());
+        assertEquals(description("b"), store.get(id(100)).getDescription());
+
+        store.close();
+
+    }
+
+    private DocumentStore open() throws IOException {
+
+        return new DocumentStore(true, directory.toString(), MAX_SIZE_BYTES);
+
+    }
+
+    private static Doc doc(final int number, final String version) {
+
+        final Doc doc = new Doc(id(number));
+        doc.setTitle("title-" + id(number).substring(4));
+        doc.setDescription(description(version));
+
+        return doc;
+
+    }
+
+    private static String id(final int number) {
+
+        return String.valueOf(10000000 + number);
+
+    }
+
+    private static String description(final String version) {
+
+        final StringBuilder description = new StringBuilder(DESCRIPTION_LENGTH);
+
+        while (description.length() < DESCRIPTION_LENGTH) {
+            description.append(version);
+        }
+
+        return description.toString();
+
+    }
+
+    private static void await(final BooleanSupplier condition) throws InterruptedException {
+
+        final long deadline = System.nanoTime() + 10_000_000_000L;
+
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out");
+            Thread.sleep(10);
+        }
+
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.uspto.evaluation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RelevanceMetricsTest {
+
+    private static final double DELTA = 1e-9;
+
+    @Test
+    void scoresNdcgAgainstEveryRatedDocument() {
+
+        final Map<String, Double> ratings = ratings("a", 3.0, "b", 2.0, "c", 0.0);
+
+        assertEquals(1.0, RelevanceMetrics.ndcg(Arrays.asList("a", "b", "c"), ratings, 3), DELTA);
+
+        // DCG (3 + 7 / log2(3)) over the ideal DCG (7 + 3 / log2(3)).
+        assertEquals(0.8339912324, RelevanceMetrics.ndcg(Arrays.asList("b", "a", "x"), ratings, 3), DELTA);
+
+        // a is rated but wasn't found, which still counts in the ideal ranking.
+        assertEquals(3 / 7.0, RelevanceMetrics.ndcg(Collections.singletonList("b"), ratings, 1), DELTA);
+
+        assertNull(RelevanceMetrics.ndcg(Arrays.asList("a", "b"), ratings("a", 0.0), 3));
+
+    }
+
+    @Test
+    void scoresPrecisionOverKResults() {
+
+        final Map<String, Double> ratings = ratings("a", 3.0, "b", 2.0, "c", 1.0);
+
+        assertEquals(0.5, RelevanceMetrics.precision(Arrays.asList("a", "b", "c"), ratings, 4, 2), DELTA);
+        assertEquals(1.0, RelevanceMetrics.precision(Arrays.asList("a", "b", "c"), ratings, 2, 2), DELTA);
+        assertEquals(0.0, RelevanceMetrics.precision(Collections.emptyList(), ratings, 10, 1), DELTA);
+
+    }
+
+    @Test
+    void scoresErr() {
+
+        final Map<String, Double> ratings = ratings("a", 2.0, "b", 1.0);
+
+        // A top rated document stops three quarters of users on a 0 to 2 scale, and b a quarter of the rest.
+        assertEquals(0.75, RelevanceMetrics.err(Collections.singletonList("a"), ratings, 10, 2), DELTA);
+        assertEquals(0.75 + 0.25 * 0.25 / 2, RelevanceMetrics.err(Arrays.asList("a", "b"), ratings, 10, 2), DELTA);
+        assertEquals(0.25 / 2 + 0.75 * 0.75 / 3, RelevanceMetrics.err(Arrays.asList("x", "b", "a"), ratings, 10, 2), DELTA);
+
+        // Only the first k results count.
+        assertEquals(0.0, RelevanceMetrics.err(Arrays.asList("x", "a"), ratings, 1, 2), DELTA);
+
+    }
+
+    /**
+     * Creates the ratings of a query.
+     * @param idsAndRatings The document IDs, each followed by its rating.
+     * @return The ratings.
+     */
+    private static Map<String, Double> ratings(final Object... idsAndRatings) {
+
+        final Map<String, Double> ratings = new HashMap<>();
+
+        for(int i = 0; i < idsAndRatings.length; i += 2) {
+            ratings.put((String) idsAndRatings[i], (Double) idsAndRatings[i + 1]);
+        }
+
+        return ratings;
+
+    }
+
+}
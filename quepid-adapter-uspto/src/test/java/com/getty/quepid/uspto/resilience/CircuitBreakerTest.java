@@ -0,0 +1,188 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.uspto.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+    @Test
+    void opensWhenTheFailureRateReachesTheThreshold() {
+
+        final CircuitBreaker breaker = breaker(Duration.ofHours(1));
+
+        // Not enough calls yet, however many failed.
+        for (int i = 0; i < 3; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure();
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(1, breaker.getRejectedCount());
+
+    }
+
+    @Test
+    void onlyCountsTheLatestCalls() {
+
+        final CircuitBreaker breaker = breaker(Duration.ofHours(1));
+
+        breaker.onFailure();
+        breaker.onFailure();
+
+        // The window holds six calls, so the two failures age out.
+        for (int i = 0; i < 6; i++) {
+            breaker.onSuccess();
+        }
+
+        breaker.onFailure();
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+    }
+
+    @Test
+    void ignoredCallsDontCount() {
+
+        final CircuitBreaker breaker = breaker(Duration.ofHours(1));
+
+        for (int i = 0; i < 10; i++) {
+            breaker.onIgnored();
+        }
+
+        // Two failures in four calls, which would be two in six if the ignored calls counted as successes.
+        breaker.onSuccess();
+        breaker.onSuccess();
+        breaker.onFailure();
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+    }
+
+    @Test
+    void closesWhenEveryProbeSucceeds() {
+
+        final CircuitBreaker breaker = openBreaker(Duration.ZERO);
+
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+
+        // Only two probes at a time.
+        assertFalse(breaker.tryAcquire());
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        // It closes with an empty window.
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+    }
+
+    @Test
+    void reopensWhenAProbeFails() {
+
+        final CircuitBreaker breaker = openBreaker(Duration.ZERO);
+
+        assertTrue(breaker.tryAcquire());
+        breaker.onSuccess();
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+    }
+
+    @Test
+    void anIgnoredProbeFreesItsPlace() {
+
+        final CircuitBreaker breaker = openBreaker(Duration.ZERO);
+
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+
+        breaker.onIgnored();
+
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+    }
+
+    @Test
+    void neverOpensWhenDisabled() {
+
+        final CircuitBreaker breaker = new CircuitBreaker(false, 0.5, 6, 4, Duration.ofHours(1), 2);
+
+        for (int i = 0; i < 10; i++) {
+            breaker.onFailure();
+        }
+
+        assertTrue(breaker.tryAcquire());
+
+    }
+
+    private static CircuitBreaker breaker(final Duration openDuration) {
+
+        return new CircuitBreaker(true, 0.5, 6, 4, openDuration, 2);
+
+    }
+
+    private static CircuitBreaker openBreaker(final Duration openDuration) {
+
+        final CircuitBreaker breaker = breaker(openDuration);
+
+        for (int i = 0; i < 4; i++) {
+            breaker.onFailure();
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        return breaker;
+
+    }
+
+}
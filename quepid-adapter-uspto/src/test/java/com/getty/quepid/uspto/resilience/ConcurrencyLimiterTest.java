@@ -0,0 +1,159 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.uspto.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrencyLimiterTest {
+
+    private static final Duration LATENCY_THRESHOLD = Duration.ofSeconds(5);
+
+    @Test
+    void rejectsCallsOverTheLimit() {
+
+        final ConcurrencyLimiter limiter = limiter(true, 2);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+
+        assertEquals(2, limiter.getInFlight());
+        assertEquals(1, limiter.getRejectedCount());
+
+        limiter.cancel();
+
+        assertTrue(limiter.tryAcquire());
+
+    }
+
+    @Test
+    void growsByOneForFastSuccessesWhileTheLimitIsInUse() {
+
+        final ConcurrencyLimiter limiter = limiter(true, 4);
+        final long startTime = System.nanoTime();
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+
+        // Three of four in flight after the release, so the limit is in use.
+        limiter.release(startTime, true);
+        assertEquals(5, limiter.getLimit());
+
+        // Fewer than half in flight is a quiet limiter, which doesn't keep growing.
+        limiter.release(startTime, true);
+        limiter.release(startTime, true);
+        limiter.release(startTime, true);
+
+        assertEquals(5, limiter.getLimit());
+
+    }
+
+    @Test
+    void cutsOnceForABurstOfFailures() throws InterruptedException {
+
+        final ConcurrencyLimiter limiter = limiter(true, 20);
+
+        Thread.sleep(1);
+        final long startTime = System.nanoTime();
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+
+        limiter.release(startTime, false);
+        assertEquals(10, limiter.getLimit());
+
+        // These started before the cut, so they're part of the same signal.
+        limiter.release(startTime, false);
+        limiter.release(startTime, false);
+        assertEquals(10, limiter.getLimit());
+
+        Thread.sleep(1);
+
+        // A call started after the cut can cut again.
+        assertTrue(limiter.tryAcquire());
+        limiter.release(System.nanoTime(), false);
+        assertEquals(5, limiter.getLimit());
+
+    }
+
+    @Test
+    void cutsForSlowSuccesses() throws InterruptedException {
+
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(true, 20, 1, 100, Duration.ofMillis(1), 0.5);
+
+        Thread.sleep(1);
+        final long startTime = System.nanoTime();
+
+        assertTrue(limiter.tryAcquire());
+        Thread.sleep(5);
+        limiter.release(startTime, true);
+
+        assertEquals(10, limiter.getLimit());
+
+    }
+
+    @Test
+    void staysWithinTheMinimumAndMaximum() throws InterruptedException {
+
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(true, 100, 4, 10, LATENCY_THRESHOLD, 0.1);
+
+        assertEquals(10, limiter.getLimit());
+
+        Thread.sleep(1);
+        assertTrue(limiter.tryAcquire());
+        limiter.release(System.nanoTime(), false);
+
+        assertEquals(4, limiter.getLimit());
+
+    }
+
+    @Test
+    void neverRejectsWhenDisabled() {
+
+        final ConcurrencyLimiter limiter = limiter(false, 1);
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+
+        assertEquals(10, limiter.getInFlight());
+        assertEquals(0, limiter.getRejectedCount());
+
+    }
+
+    private static ConcurrencyLimiter limiter(final boolean enabled, final int initialLimit) {
+
+        return new ConcurrencyLimiter(enabled, initialLimit, 1, 100, LATENCY_THRESHOLD, 0.5);
+
+    }
+
+}
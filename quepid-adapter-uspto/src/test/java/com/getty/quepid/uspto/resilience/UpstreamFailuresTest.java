@@ -0,0 +1,104 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.uspto.resilience;
+
+import com.google.gson.stream.MalformedJsonException;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UpstreamFailuresTest {
+
+    @Test
+    void blamesErrorResponsesFromTheServer() {
+
+        assertTrue(UpstreamFailures.isTransient(new UpstreamResponseException("HTTP 500", 500)));
+        assertTrue(UpstreamFailures.isTransient(new UpstreamResponseException("HTTP 503", 503)));
+        assertTrue(UpstreamFailures.isTransient(new UpstreamResponseException("HTTP 408", 408)));
+        assertTrue(UpstreamFailures.isTransient(new UpstreamResponseException("HTTP 429", 429)));
+        assertTrue(UpstreamFailures.isTransient(new UpstreamResponseException("no body", 200)));
+
+    }
+
+    @Test
+    void blamesConnectionFailures() {
+
+        assertTrue(UpstreamFailures.isTransient(new ConnectException("Connection refused")));
+        assertTrue(UpstreamFailures.isTransient(new SocketException("Connection reset")));
+        assertTrue(UpstreamFailures.isTransient(new SocketTimeoutException("Read timed out")));
+
+    }
+
+    @Test
+    void blamesResetHttp2Streams() throws ReflectiveOperationException {
+
+        // OkHttp's internal exception, made by name as the code under test only knows it by name.
+        final Class<?> errorCode;
+        final Class<?> streamReset;
+
+        try {
+            errorCode = Class.forName("okhttp3.internal.http2.ErrorCode");
+            streamReset = Class.forName("okhttp3.internal.http2.StreamResetException");
+        } catch (ClassNotFoundException ex) {
+            Assumptions.assumeTrue(false, "This OkHttp has no " + ex.getMessage());
+            return;
+        }
+
+        final Object refusedStream = errorCode.getField("REFUSED_STREAM").get(null);
+        final Throwable ex = (Throwable) streamReset.getConstructor(errorCode).newInstance(refusedStream);
+
+        assertTrue(UpstreamFailures.isTransient(ex));
+
+    }
+
+    @Test
+    void doesNotBlameClientErrorsOrUnreadableResponses() {
+
+        assertFalse(UpstreamFailures.isTransient(new UpstreamResponseException("HTTP 400", 400)));
+        assertFalse(UpstreamFailures.isTransient(new UpstreamResponseException("HTTP 404", 404)));
+        assertFalse(UpstreamFailures.isTransient(new MalformedJsonException("Unterminated object")));
+        assertFalse(UpstreamFailures.isTransient(new EOFException("End of input")));
+        assertFalse(UpstreamFailures.isTransient(new IllegalStateException("Expected BEGIN_ARRAY")));
+
+    }
+
+    @Test
+    void doesNotBlameCallsThatWereNeverMadeOrCancelled() {
+
+        assertFalse(UpstreamFailures.isTransient(new UpstreamUnavailableException("Too many USPTO API calls in flight")));
+        assertFalse(UpstreamFailures.isTransient(new IOException("Canceled")));
+        assertFalse(UpstreamFailures.isTransient(new CancellationException()));
+
+    }
+
+}
@@ -0,0 +1,276 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.uspto.services;
+
+import com.getty.quepid.model.solr.FieldList;
+import com.getty.quepid.uspto.model.Grant;
+import com.getty.quepid.uspto.model.GrantPage;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonWriter;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class GrantReaderTest {
+
+    private static final MediaType JSON = MediaType.get("application/json");
+    private static final Type GRANT_LIST = new TypeToken<List<Grant>>() { }.getType();
+
+    @Test
+    void readsAnArrayOfGrants() throws IOException {
+
+        final GrantPage page = new GrantReader(0).read(body(grantsJson(3, 100)));
+
+        assertEquals(GrantPage.UNKNOWN_TOTAL, page.getTotal());
+        assertEquals(3, page.getGrants().size());
+        assertEquals("10000002", page.getGrants().get(2).getPatentNumber());
+        assertEquals("Title 2", page.getGrants().get(2).getInventionTitle());
+        assertEquals(100, page.getGrants().get(2).getDescriptionText().length());
+        assertNull(page.getGrants().get(2).getAbstractText());
+
+    }
+
+    @Test
+    void readsWrappedGrantsAndTheirTotal() throws IOException {
+
+        final String json = "{\"response\": {\"numFound\": \" 42 \", \"start\": 0, \"docs\": " + grantsJson(2, 10) + "}}";
+        final GrantPage page = new GrantReader(0).read(body(json));
+
+        assertEquals(42, page.getTotal());
+        assertEquals(2, page.getGrants().size());
+
+        final GrantPage results = new GrantReader(0).read(body("{\"recordTotalQuantity\": 7, \"results\": []}"));
+
+        assertEquals(7, results.getTotal());
+        assertTrue(results.getGrants().isEmpty());
+
+    }
+
+    @Test
+    void readsOnlyTheRequestedFields() throws IOException {
+
+        final GrantPage page = new GrantReader(0).read(body(grantsJson(1, 100)), FieldList.parse("id,title"));
+        final Grant grant = page.getGrants().get(0);
+
+        assertEquals("10000000", grant.getPatentNumber());
+        assertEquals("Title 0", grant.getInventionTitle());
+        assertNull(grant.getDescriptionText());
+
+    }
+
+    @Test
+    void shortensDescriptionsToSnippets() throws IOException {
+
+        final String description = "first second third fourth fifth";
+        final String json = "[{\"patentNumber\": \"1\", \"descriptionText\": \"" + description + "\", \"inventionTitle\": null}]";
+
+        final Grant grant = new GrantReader(15).read(body(json)).getGrants().get(0);
+
+        assertEquals("first second...", grant.getDescriptionText());
+        assertNull(grant.getInventionTitle());
+
+        // A description that just fits isn't cut.
+        assertEquals(description, new GrantReader(description.length()).read(body(json)).getGrants().get(0).getDescriptionText());
+
+    }
+
+    @Test
+    void shortensOnlyTheDescription() throws IOException {
+
+        // The limit is shorter than the field names and the title.
+        final String json = "[{\"patentNumber\": \"10000000\", \"inventionTitle\": \"A very long title\", "
+                + "\"descriptionText\": \"first second third\"}]";
+
+        final Grant grant = new GrantReader(3).read(body(json)).getGrants().get(0);
+
+        assertEquals("10000000", grant.getPatentNumber());
+        assertEquals("A very long title", grant.getInventionTitle());
+        assertTrue(grant.getDescriptionText().length() < "first second third".length());
+
+    }
+
+    @Test
+    void cutsDescriptionsBetweenEscapedCharacters() throws IOException {
+
+        // Six characters once decoded: a, a quote, b, e acute, a newline and c.
+        final String json = "{\"descriptionText\": \"a\\\"b\\u00e9\\nc\", \"other\": \"a\\\"b\\u00e9\\nc\"}";
+
+        assertEquals("{\"descriptionText\": \"a\\\"b\\u00e9\", \"other\": \"a\\\"b\\u00e9\\nc\"}", truncate(json, 4));
+        assertEquals(json, truncate(json, 6));
+
+    }
+
+    @Test
+    void cutsOnlyValuesOfTheField() throws IOException {
+
+        // The name as an array element, a value after a null description and a field whose name only starts the same.
+        final String json = "{\"a\": [\"descriptionText\", \"long value\"], \"descriptionText\": null, \"b\": \"long value\", "
+                + "\"descriptionTextX\": \"long value\", \"descriptionText\" : \"long value\"}";
+
+        assertEquals("{\"a\": [\"descriptionText\", \"long value\"], \"descriptionText\": null, \"b\": \"long value\", "
+                + "\"descriptionTextX\": \"long value\", \"descriptionText\" : \"long\"}", truncate(json, 4));
+
+    }
+
+    @Test
+    void allocatesFarLessThanBindingTheGrants() throws IOException {
+
+        final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+        assumeTrue(threadBean instanceof com.sun.management.ThreadMXBean);
+
+        final com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threadBean;
+
+        assumeTrue(allocations.isThreadAllocatedMemorySupported() && allocations.isThreadAllocatedMemoryEnabled());
+
+        // A rows=100 search with 50,000 character descriptions, read with the search description length.
+        final byte[] json = grantsJson(100, 50000).getBytes(StandardCharsets.UTF_8);
+        final GrantReader reader = new GrantReader(1000);
+        final Gson gson = new Gson();
+        final long threadId = Thread.currentThread().getId();
+
+        long streamedBytes = Long.MAX_VALUE;
+        long boundBytes = Long.MAX_VALUE;
+
+        // Take the least of a few runs so the JIT compiler and class loading don't count.
+        for (int i = 0; i < 5; i++) {
+
+            final ResponseBody streamed = body(json);
+            final long streamStart = allocations.getThreadAllocatedBytes(threadId);
+            final GrantPage page = reader.read(streamed);
+            streamedBytes = Math.min(streamedBytes, allocations.getThreadAllocatedBytes(threadId) - streamStart);
+
+            assertEquals(100, page.getGrants().size());
+            assertTrue(page.getGrants().get(99).getDescriptionText().length() <= 1003);
+
+            // How the response used to be read: bound to a List<Grant> by Retrofit's Gson converter.
+            final ResponseBody bound = body(json);
+            final long bindStart = allocations.getThreadAllocatedBytes(threadId);
+            final List<Grant> grants = gson.fromJson(bound.charStream(), GRANT_LIST);
+            boundBytes = Math.min(boundBytes, allocations.getThreadAllocatedBytes(threadId) - bindStart);
+
+            assertEquals(100, grants.size());
+
+        }
+
+        assertTrue(streamedBytes * 5 < boundBytes,
+                "Streaming allocated " + streamedBytes + " bytes, binding allocated " + boundBytes + " bytes");
+
+    }
+
+    private static String truncate(final String json, final int maxLength) throws IOException {
+
+        final StringBuilder truncated = new StringBuilder();
+        final char[] buffer = new char[3];
+
+        try (Reader reader = new TruncatingJsonReader(new StringReader(json), "descriptionText", maxLength)) {
+
+            int read;
+
+            while ((read = reader.read(buffer, 0, buffer.length)) != -1) {
+                truncated.append(buffer, 0, read);
+            }
+
+        }
+
+        return truncated.toString();
+
+    }
+
+    private static ResponseBody body(final String json) {
+
+        return ResponseBody.create(JSON, json);
+
+    }
+
+    private static ResponseBody body(final byte[] json) {
+
+        return ResponseBody.create(JSON, json);
+
+    }
+
+    /**
+     * Builds a USPTO grants response like the benchmarks' payloads, with the large fields the adapter doesn't read.
+     */
+    private static String grantsJson(final int count, final int descriptionLength) throws IOException {
+
+        final StringWriter json = new StringWriter();
+
+        try (JsonWriter writer = new JsonWriter(json)) {
+
+            writer.beginArray();
+
+            for (int i = 0; i < count; i++) {
+
+                writer.beginObject();
+                writer.name("patentApplicationNumber").value("US" + (14000000 + i));
+                writer.name("abstractText").value(text(600));
+                writer.name("assigneeEntityName").value("Example Corporation");
+                writer.name("inventionTitle").value("Title " + i);
+                writer.name("claimText").beginArray().value(text(descriptionLength / 2)).endArray();
+                writer.name("descriptionText").value(text(descriptionLength));
+                writer.name("patentNumber").value(String.valueOf(10000000 + i));
+                writer.endObject();
+
+            }
+
+            writer.endArray();
+
+        }
+
+        return json.toString();
+
+    }
+
+    private static String text(final int length) {
+
+        final StringBuilder text = new StringBuilder(length + 10);
+
+        while (text.length() < length) {
+            text.append("apparatus ");
+        }
+
+        text.setLength(length);
+
+        return text.toString();
+
+    }
+
+}
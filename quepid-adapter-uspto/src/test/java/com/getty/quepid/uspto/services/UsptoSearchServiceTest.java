@@ -0,0 +1,329 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.uspto.services;
+
+import com.getty.quepid.model.solr.Doc;
+import com.getty.quepid.uspto.cache.DocumentCache;
+import com.getty.quepid.uspto.cache.DocumentInterner;
+import com.getty.quepid.uspto.cache.DocumentStore;
+import com.getty.quepid.uspto.cache.SearchCache;
+import com.getty.quepid.uspto.model.UsptoSearchRequest;
+import com.getty.quepid.uspto.resilience.CircuitBreaker;
+import com.getty.quepid.uspto.resilience.ConcurrencyLimiter;
+import com.getty.quepid.uspto.resilience.HedgingPolicy;
+import com.getty.quepid.uspto.resilience.RetryBudget;
+import com.getty.quepid.uspto.resilience.UpstreamResponseException;
+import com.getty.quepid.uspto.resilience.UpstreamScheduler;
+import com.getty.quepid.uspto.resilience.UpstreamUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the {@link UsptoSearchService} against a {@link UsptoStub} to check how it copes with a failing USPTO API.
+ */
+class UsptoSearchServiceTest {
+
+    private static final int INITIAL_LIMIT = 8;
+
+    private UsptoStub stub;
+    private ConcurrencyLimiter limiter;
+    private CircuitBreaker breaker;
+    private HedgingPolicy hedgingPolicy;
+    private UpstreamScheduler scheduler;
+
+    @BeforeEach
+    void startStub() throws IOException {
+
+        stub = new UsptoStub();
+        limiter = new ConcurrencyLimiter(true, INITIAL_LIMIT, 1, 100, Duration.ofSeconds(5), 0.5);
+        breaker = new CircuitBreaker(true, 0.5, 10, 4, Duration.ofHours(1), 1);
+        scheduler = new UpstreamScheduler(limiter, false, 0, 1, 0, 1, 100);
+
+    }
+
+    @AfterEach
+    void stopStub() {
+
+        stub.close();
+        scheduler.close();
+
+        if(hedgingPolicy != null) {
+            hedgingPolicy.close();
+        }
+
+    }
+
+    @Test
+    void clientErrorsDontOpenTheBreakerOrCutTheLimit() {
+
+        final UsptoSearchService service = newService(new RetryBudget(0.1, 1, 20));
+
+        stub.respond((call, query) -> UsptoStub.Reply.status(400));
+
+        for (int i = 0; i < 10; i++) {
+
+            final UpstreamResponseException ex = assertThrows(UpstreamResponseException.class, () -> service.search(new UsptoSearchRequest("bad query")));
+            assertEquals(400, ex.getCode());
+
+        }
+
+        // Nor are they retried.
+        assertEquals(10, stub.getCallCount());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(INITIAL_LIMIT, limiter.getLimit());
+
+    }
+
+    @Test
+    void unreadableResponsesDontOpenTheBreakerOrCutTheLimit() {
+
+        final UsptoSearchService service = newService(new RetryBudget(0, 0, 0));
+
+        stub.respond((call, query) -> UsptoStub.Reply.body("{\"results\": [{\"patentNumber\": }]}"));
+
+        for (int i = 0; i < 10; i++) {
+            assertThrows(IOException.class, () -> service.getDocument("10000000"));
+        }
+
+        assertEquals(10, stub.getCallCount());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(INITIAL_LIMIT, limiter.getLimit());
+
+    }
+
+    @Test
+    void serverErrorsOpenTheBreaker() throws InterruptedException {
+
+        final UsptoSearchService service = newService(new RetryBudget(0, 0, 0));
+
+        stub.respond((call, query) -> UsptoStub.Reply.status(503));
+
+        for (int i = 0; i < 4; i++) {
+            assertThrows(UpstreamResponseException.class, () -> service.search(new UsptoSearchRequest("query")));
+        }
+
+        // The outcome of the last call can be recorded just after its caller has the failure.
+        await(() -> breaker.getState() == CircuitBreaker.State.OPEN);
+
+        assertTrue(limiter.getLimit() < INITIAL_LIMIT);
+
+        // The breaker fails calls fast without making them.
+        assertThrows(UpstreamUnavailableException.class, () -> service.search(new UsptoSearchRequest("query")));
+        assertEquals(4, stub.getCallCount());
+
+    }
+
+    @Test
+    void retriesATransientFailureOnce() throws IOException {
+
+        final RetryBudget retryBudget = new RetryBudget(0.1, 0, 20);
+        final UsptoSearchService service = newService(retryBudget);
+
+        stub.respond((call, query) -> call == 1 ? UsptoStub.Reply.status(503) : UsptoStub.Reply.grant("10000000"));
+
+        assertEquals("Title 10000000", service.getDocument("10000000").getTitle());
+        assertEquals(2, stub.getCallCount());
+        assertEquals(1, retryBudget.getWithdrawnCount());
+
+        // A second failure isn't retried again.
+        stub.respond((call, query) -> UsptoStub.Reply.status(503));
+
+        assertThrows(UpstreamResponseException.class, () -> service.getDocument("10000001"));
+        assertEquals(4, stub.getCallCount());
+
+    }
+
+    @Test
+    void doesNotRetryUnreadableResponses() {
+
+        final RetryBudget retryBudget = new RetryBudget(0.1, 0, 20);
+        final UsptoSearchService service = newService(retryBudget);
+
+        stub.respond((call, query) -> UsptoStub.Reply.body("[{\"patentNumber\": \"10000000\", \"inventionTitle\": "));
+
+        assertThrows(IOException.class, () -> service.getDocument("10000000"));
+        assertEquals(1, stub.getCallCount());
+        assertEquals(0, retryBudget.getWithdrawnCount());
+
+    }
+
+    @Test
+    void stopsRetryingWhenTheBudgetIsSpent() {
+
+        final RetryBudget retryBudget = new RetryBudget(0, 0, 1);
+        final UsptoSearchService service = newService(retryBudget);
+
+        stub.respond((call, query) -> UsptoStub.Reply.status(503));
+
+        assertThrows(UpstreamResponseException.class, () -> service.getDocument("10000000"));
+        assertThrows(UpstreamResponseException.class, () -> service.getDocument("10000001"));
+
+        assertEquals(3, stub.getCallCount());
+        assertEquals(1, retryBudget.getRejectedCount());
+
+    }
+
+    @Test
+    void hedgesASlowCall() throws IOException {
+
+        final RetryBudget retryBudget = new RetryBudget(0.1, 0, 20);
+        final HedgingPolicy hedgingPolicy = new HedgingPolicy(true, 0.95, Duration.ofMillis(20), 100, 10);
+        final UsptoSearchService service = newService(retryBudget, hedgingPolicy,
+                new SearchCache(false, 0, Duration.ofHours(1), Duration.ofMinutes(10)));
+
+        // Calls usually take 10ms, so one still going after 20ms is hedged.
+        for (int i = 0; i < 10; i++) {
+            hedgingPolicy.record("document", TimeUnit.MILLISECONDS.toNanos(10));
+        }
+
+        stub.respond((call, query) -> call == 1 ? UsptoStub.Reply.grant("10000000").after(5000) : UsptoStub.Reply.grant("10000000"));
+
+        final long startTime = System.nanoTime();
+
+        assertEquals("Title 10000000", service.getDocument("10000000").getTitle());
+
+        assertTrue(System.nanoTime() - startTime < TimeUnit.SECONDS.toNanos(2));
+        assertEquals(2, stub.getCallCount());
+        assertEquals(1, retryBudget.getWithdrawnCount());
+
+    }
+
+    @Test
+    void refreshesStaleSearches() throws Exception {
+
+        final SearchCache searchCache = new SearchCache(true, 1 << 20, Duration.ofHours(1), Duration.ZERO);
+        final UsptoSearchService service = newService(new RetryBudget(0, 0, 0), searchCache);
+
+        stub.respond((call, query) -> UsptoStub.Reply.grant("10000000"));
+
+        final Doc first = service.search(new UsptoSearchRequest("query")).getSolrResponse().getResponse().getDocs().get(0);
+
+        // The patent's description changes upstream.
+        stub.respond((call, query) -> UsptoStub.Reply.body("[{\"patentNumber\": \"10000000\", \"inventionTitle\": \"Title 10000000\", "
+                + "\"descriptionText\": \"Amended\"}]"));
+
+        // The stale result is served while it is refreshed in the background.
+        assertSame(first, service.search(new UsptoSearchRequest("query")).getSolrResponse().getResponse().getDocs().get(0));
+        await(() -> stub.getCallCount() == 2);
+
+        // The first result still holds the old doc, which mustn't stop the refresh from taking.
+        await(() -> {
+            try {
+                return "Amended".equals(service.search(new UsptoSearchRequest("query")).getSolrResponse().getResponse().getDocs().get(0).getDescription());
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+
+        assertEquals("Description 10000000", first.getDescription());
+
+    }
+
+    @Test
+    void skipsTheCacheForUncacheableSearches() throws IOException {
+
+        final SearchCache searchCache = new SearchCache(true, 1 << 20, Duration.ofHours(1), Duration.ofHours(1));
+        final UsptoSearchService service = newService(new RetryBudget(0, 0, 0), searchCache);
+
+        stub.respond((call, query) -> UsptoStub.Reply.grant("10000000"));
+
+        service.search(new UsptoSearchRequest("query"));
+        service.search(new UsptoSearchRequest("query"));
+
+        assertEquals(1, stub.getCallCount());
+
+        final UsptoSearchRequest uncacheable = new UsptoSearchRequest("query");
+        uncacheable.setCacheable(false);
+
+        stub.respond((call, query) -> UsptoStub.Reply.body("[{\"patentNumber\": \"10000000\", \"inventionTitle\": \"Amended\"}]"));
+
+        assertEquals("Amended", service.search(uncacheable).getSolrResponse().getResponse().getDocs().get(0).getTitle());
+        assertEquals(2, stub.getCallCount());
+
+        // The fresh result replaces the cached one.
+        assertEquals("Amended", service.search(new UsptoSearchRequest("query")).getSolrResponse().getResponse().getDocs().get(0).getTitle());
+        assertEquals(2, stub.getCallCount());
+
+    }
+
+    static void await(final BooleanSupplier condition) throws InterruptedException {
+
+        final long deadline = System.nanoTime() + 10_000_000_000L;
+
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out");
+            Thread.sleep(5);
+        }
+
+    }
+
+    /**
+     * Creates a service that calls the stub, with hedging off and no caches in the way unless a search cache is given.
+     */
+    private UsptoSearchService newService(final RetryBudget retryBudget) {
+
+        return newService(retryBudget, new SearchCache(false, 0, Duration.ofHours(1), Duration.ofMinutes(10)));
+
+    }
+
+    private UsptoSearchService newService(final RetryBudget retryBudget, final SearchCache searchCache) {
+
+        return newService(retryBudget, new HedgingPolicy(false, 0.95, Duration.ofMillis(50), 100, 10), searchCache);
+
+    }
+
+    private UsptoSearchService newService(final RetryBudget retryBudget, final HedgingPolicy hedgingPolicy, final SearchCache searchCache) {
+
+        this.hedgingPolicy = hedgingPolicy;
+
+        try {
+
+            return new UsptoSearchService(stub.newService(),
+                    new DocumentCache(0, Duration.ofHours(1), Duration.ofMinutes(5)),
+                    new DocumentStore(false, "document-store", 0),
+                    searchCache,
+                    new DocumentInterner(),
+                    limiter, breaker, hedgingPolicy, retryBudget, scheduler,
+                    new SimpleMeterRegistry(), 8, 10000, 1000);
+
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+
+    }
+
+}
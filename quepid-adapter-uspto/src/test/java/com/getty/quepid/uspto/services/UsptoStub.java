@@ -0,0 +1,181 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.uspto.services;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.OkHttpClient;
+import retrofit2.Retrofit;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A local stand-in for the USPTO grants API that answers each call the way the test says.
+ */
+final class UsptoStub implements AutoCloseable {
+
+    /**
+     * Answers a call.
+     */
+    interface Responder {
+
+        /**
+         * @param call The number of the call, from 1.
+         * @param query The query string of the call.
+         * @return The {@link Reply}.
+         */
+        Reply reply(int call, String query) throws Exception;
+
+    }
+
+    /**
+     * How to answer a call.
+     */
+    static final class Reply {
+
+        private final int status;
+        private final String body;
+        private final long delayMillis;
+
+        private Reply(final int status, final String body, final long delayMillis) {
+
+            this.status = status;
+            this.body = body;
+            this.delayMillis = delayMillis;
+
+        }
+
+        static Reply grant(final String patentNumber) {
+
+            return new Reply(200, "[{\"patentNumber\": \"" + patentNumber + "\", \"inventionTitle\": \"Title " + patentNumber
+                    + "\", \"descriptionText\": \"Description " + patentNumber + "\"}]", 0);
+
+        }
+
+        static Reply status(final int status) {
+
+            return new Reply(status, "{\"error\": \"HTTP " + status + "\"}", 0);
+
+        }
+
+        static Reply body(final String body) {
+
+            return new Reply(200, body, 0);
+
+        }
+
+        Reply after(final long delayMillis) {
+
+            return new Reply(status, body, delayMillis);
+
+        }
+
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private volatile Responder responder = (call, query) -> Reply.body("[]");
+
+    UsptoStub() throws IOException {
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+
+    }
+
+    void respond(final Responder responder) {
+
+        this.responder = responder;
+
+    }
+
+    int getCallCount() {
+
+        return calls.get();
+
+    }
+
+    /**
+     * Creates a {@link UsptoService} that calls the stub.
+     * @return The {@link UsptoService}.
+     */
+    UsptoService newService() {
+
+        return new Retrofit.Builder()
+                .baseUrl("http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/")
+                .client(new OkHttpClient())
+                .build()
+                .create(UsptoService.class);
+
+    }
+
+    @Override
+    public void close() {
+
+        server.stop(0);
+        executor.shutdownNow();
+
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+
+        try {
+
+            final Reply reply = responder.reply(calls.incrementAndGet(), exchange.getRequestURI().getRawQuery());
+
+            if(reply.delayMillis > 0) {
+                TimeUnit.MILLISECONDS.sleep(reply.delayMillis);
+            }
+
+            final byte[] body = reply.body.getBytes(StandardCharsets.UTF_8);
+
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(reply.status, body.length);
+
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+
+        } catch (Exception ex) {
+
+            // A cancelled call has gone away, or the stub is closing.
+            exchange.close();
+
+        }
+
+    }
+
+}
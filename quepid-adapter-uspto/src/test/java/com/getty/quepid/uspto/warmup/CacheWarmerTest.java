@@ -0,0 +1,129 @@
+/*
+MIT License
+Copyright (c) 2021 Getty Images
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package com.getty.quepid.uspto.warmup;
+
+import com.getty.quepid.model.search.AbstractSearchService;
+import com.getty.quepid.model.search.Priority;
+import com.getty.quepid.model.solr.Doc;
+import com.getty.quepid.uspto.model.UsptoSearchRequest;
+import com.getty.quepid.uspto.model.UsptoSearchResponse;
+import com.getty.quepid.uspto.resilience.UpstreamUnavailableException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CacheWarmerTest {
+
+    private final CacheWarmer warmer = new CacheWarmer(new FailingSearchService(), "", 2, 0);
+
+    @AfterEach
+    void close() {
+
+        warmer.close();
+
+    }
+
+    @Test
+    void countsRequestsThatThrowAsFailed() throws Exception {
+
+        final WarmupStatus status = await(warmer.start(plan()));
+
+        assertEquals(WarmupStatus.State.COMPLETED, status.getState());
+        assertEquals(4, status.getCompleted());
+        assertEquals(2, status.getFailed());
+
+        // The warm-up finished, so another can start.
+        assertEquals(WarmupStatus.State.COMPLETED, await(warmer.start(plan())).getState());
+
+    }
+
+    private WarmupStatus await(final WarmupStatus started) throws InterruptedException {
+
+        // The warm-up may already be done, but start reports it as it began.
+        assertEquals(WarmupStatus.State.RUNNING, started.getState());
+        assertEquals(6, started.getTotal());
+        assertEquals(0, started.getCompleted() + started.getFailed());
+
+        final long deadline = System.nanoTime() + 10_000_000_000L;
+        WarmupStatus status;
+
+        while ((status = warmer.getStatus()).getState() == WarmupStatus.State.RUNNING) {
+            assertTrue(System.nanoTime() < deadline, "Timed out");
+            Thread.sleep(5);
+        }
+
+        return status;
+
+    }
+
+    private static WarmupPlan plan() throws IOException {
+
+        return WarmupPlan.read(new StringReader("Query Text,Doc ID\nrejected,1\nunavailable,2\nfine,3\n"));
+
+    }
+
+    /**
+     * Throws instead of returning a future for two of the searches, the way a full executor or scheduler can.
+     */
+    private static final class FailingSearchService extends AbstractSearchService<UsptoSearchRequest, UsptoSearchResponse> {
+
+        @Override
+        public UsptoSearchResponse search(final UsptoSearchRequest usptoSearchRequest) {
+
+            return new UsptoSearchResponse();
+
+        }
+
+        @Override
+        public Doc getDocument(final String id) {
+
+            return new Doc(id);
+
+        }
+
+        @Override
+        public CompletableFuture<UsptoSearchResponse> searchAsync(final UsptoSearchRequest usptoSearchRequest, final Priority priority) {
+
+            switch (usptoSearchRequest.getSearchText()) {
+                case "rejected":
+                    throw new RejectedExecutionException("Executor is shut down");
+                case "unavailable":
+                    throw new UncheckedIOException(new UpstreamUnavailableException("Too many calls waiting"));
+                default:
+                    return super.searchAsync(usptoSearchRequest, priority);
+            }
+
+        }
+
+    }
+
+}